@@ -0,0 +1,3 @@
+create index shows_genre_language_id_idx on shows (lower(genre), lower(language), id);
+create index shows_category_id_idx on shows (lower(category), id);
+create index shows_likes_id_idx on shows (likes desc, id desc);
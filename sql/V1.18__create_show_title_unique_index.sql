@@ -0,0 +1,14 @@
+-- a title added twice before this index existed is merged into its oldest row:
+-- its likes are added up and favorites and downloads are moved to that row
+create temporary table duplicate_shows as
+select id, min(id) over (partition by name, year, lower(language)) as keep_id, likes from shows;
+delete from duplicate_shows where id = keep_id;
+update shows set likes = shows.likes + merged.likes
+from (select keep_id, sum(likes) as likes from duplicate_shows group by keep_id) merged
+where shows.id = merged.keep_id;
+update favorites set movie_id = duplicate_shows.keep_id from duplicate_shows where favorites.movie_id = duplicate_shows.id;
+update download set movie_id = duplicate_shows.keep_id from duplicate_shows where download.movie_id = duplicate_shows.id;
+delete from shows using duplicate_shows where shows.id = duplicate_shows.id;
+drop table duplicate_shows;
+
+create unique index shows_name_year_language_key on shows (name, year, lower(language));
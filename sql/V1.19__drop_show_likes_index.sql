@@ -0,0 +1 @@
+drop index if exists shows_likes_id_idx;
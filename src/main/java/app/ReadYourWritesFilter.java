@@ -0,0 +1,46 @@
+package app;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import in.venkat.util.ConnectionUtil;
+
+/**
+ * Binds the signed in user, or else the session, to the request thread so that
+ * a user who has just written reads from the primary instead of a replica that
+ * may not have caught up yet
+ */
+@WebFilter("/*")
+public class ReadYourWritesFilter implements Filter {
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		ConnectionUtil.setCaller(callerOf(request));
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			ConnectionUtil.clearCaller();
+		}
+	}
+
+	private static String callerOf(ServletRequest request) {
+		if (!(request instanceof HttpServletRequest)) {
+			return null;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		if (httpRequest.getRemoteUser() != null) {
+			return "user:" + httpRequest.getRemoteUser();
+		}
+		HttpSession session = httpRequest.getSession(false);
+		return session == null ? null : "session:" + session.getId();
+	}
+}
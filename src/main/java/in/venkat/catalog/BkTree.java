@@ -0,0 +1,207 @@
+package in.venkat.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Burkhard-Keller tree over lowercased titles with Levenshtein distance. A
+ * query within k edits only descends into children whose edge distance lies
+ * in [d - k, d + k], which the triangle inequality allows, so most of the
+ * vocabulary is never compared. Nodes live in parallel int arrays and name
+ * their term by a catalog position, the terms themselves are looked up when
+ * compared instead of being copied into the tree.
+ */
+class BkTree {
+	private static final int NONE = -1;
+
+	private final IntFunction<String> terms;
+	/**
+	 * Catalog positions with the same term as an earlier one, chained from the
+	 * node's first position
+	 */
+	private final int[] samePosition;
+	private int[] nodePosition = new int[16];
+	private int[] firstChild = new int[16];
+	private int[] nextSibling = new int[16];
+	private int[] edge = new int[16];
+	private int[] maxChildDistance = new int[16];
+	private int nodes;
+
+	/**
+	 * Builds the tree over every catalog position. The titles are read from the
+	 * array while building and looked up afterwards, so the array is not kept.
+	 *
+	 * @param titles lowercased title at each catalog position
+	 * @param terms  looks up the lowercased title at a catalog position
+	 */
+	BkTree(String[] titles, IntFunction<String> terms) {
+		this.terms = terms;
+		this.samePosition = new int[titles.length];
+		Arrays.fill(samePosition, NONE);
+		for (int position = 0; position < titles.length; position++) {
+			add(titles, position);
+		}
+		nodePosition = Arrays.copyOf(nodePosition, nodes);
+		firstChild = Arrays.copyOf(firstChild, nodes);
+		nextSibling = Arrays.copyOf(nextSibling, nodes);
+		edge = Arrays.copyOf(edge, nodes);
+		maxChildDistance = Arrays.copyOf(maxChildDistance, nodes);
+	}
+
+	/**
+	 * Adds a catalog position under its lowercased title, titles that are
+	 * already present just collect another position
+	 */
+	private void add(String[] titles, int position) {
+		if (nodes == 0) {
+			newNode(position, 0);
+			return;
+		}
+		String term = titles[position];
+		int node = 0;
+		while (true) {
+			int distance = distance(term, titles[nodePosition[node]], Integer.MAX_VALUE);
+			if (distance == 0) {
+				samePosition[position] = samePosition[nodePosition[node]];
+				samePosition[nodePosition[node]] = position;
+				return;
+			}
+			int child = firstChild[node];
+			while (child != NONE && edge[child] != distance) {
+				child = nextSibling[child];
+			}
+			if (child == NONE) {
+				child = newNode(position, distance);
+				nextSibling[child] = firstChild[node];
+				firstChild[node] = child;
+				maxChildDistance[node] = Math.max(maxChildDistance[node], distance);
+				return;
+			}
+			node = child;
+		}
+	}
+
+	private int newNode(int position, int distance) {
+		if (nodes == nodePosition.length) {
+			int capacity = Math.max(16, nodes * 2);
+			nodePosition = Arrays.copyOf(nodePosition, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			edge = Arrays.copyOf(edge, capacity);
+			maxChildDistance = Arrays.copyOf(maxChildDistance, capacity);
+		}
+		nodePosition[nodes] = position;
+		firstChild[nodes] = NONE;
+		nextSibling[nodes] = NONE;
+		edge[nodes] = distance;
+		maxChildDistance[nodes] = 0;
+		return nodes++;
+	}
+
+	/**
+	 * This method collects every title within maxEdits of the query
+	 *
+	 * @param query lowercased
+	 * @param maxEdits
+	 * @return
+	 */
+	List<Match> search(String query, int maxEdits) {
+		List<Match> matches = new ArrayList<>();
+		if (nodes == 0) {
+			return matches;
+		}
+		int[] pending = new int[16];
+		int pendingCount = 0;
+		pending[pendingCount++] = 0;
+		while (pendingCount > 0) {
+			int node = pending[--pendingCount];
+			String term = terms.apply(nodePosition[node]);
+			/**
+			 * Past maxChildDistance + maxEdits neither the node nor any child can
+			 * match, so the distance computation may stop there
+			 */
+			int distance = distance(query, term, maxChildDistance[node] + maxEdits);
+			if (distance <= maxEdits) {
+				matches.add(new Match(term, distance, positionsOf(node)));
+			}
+			for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+				if (Math.abs(edge[child] - distance) <= maxEdits) {
+					if (pendingCount == pending.length) {
+						pending = Arrays.copyOf(pending, pendingCount * 2);
+					}
+					pending[pendingCount++] = child;
+				}
+			}
+		}
+		return matches;
+	}
+
+	private int[] positionsOf(int node) {
+		int count = 0;
+		for (int position = nodePosition[node]; position != NONE; position = samePosition[position]) {
+			count++;
+		}
+		int[] positions = new int[count];
+		count = 0;
+		for (int position = nodePosition[node]; position != NONE; position = samePosition[position]) {
+			positions[count++] = position;
+		}
+		Arrays.sort(positions);
+		return positions;
+	}
+
+	/**
+	 * Levenshtein distance with two rows, stops early once every cell of a row
+	 * exceeds the limit
+	 */
+	static int distance(String left, String right, int limit) {
+		int[] previous = new int[right.length() + 1];
+		int[] current = new int[right.length() + 1];
+		for (int j = 0; j <= right.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= left.length(); i++) {
+			current[0] = i;
+			int rowMinimum = current[0];
+			char leftChar = left.charAt(i - 1);
+			for (int j = 1; j <= right.length(); j++) {
+				int cost = leftChar == right.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMinimum = Math.min(rowMinimum, current[j]);
+			}
+			if (rowMinimum > limit) {
+				return rowMinimum;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[right.length()];
+	}
+
+	static class Match {
+		private final String term;
+		private final int distance;
+		private final int[] positions;
+
+		Match(String term, int distance, int[] positions) {
+			this.term = term;
+			this.distance = distance;
+			this.positions = positions;
+		}
+
+		String getTerm() {
+			return term;
+		}
+
+		int getDistance() {
+			return distance;
+		}
+
+		int[] getPositions() {
+			return positions;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package in.venkat.catalog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import in.venkat.dao.ShowListDao;
+import in.venkat.exceptions.DbException;
+import in.venkat.model.Show;
+import in.venkat.util.ConfigUtil;
+import in.venkat.util.Logger;
+
+/**
+ * Process wide holder of the current {@link CatalogSnapshot}. The snapshot is
+ * loaded on first use and patched after every catalog change made through
+ * ShowService. Changes made on other nodes arrive through
+ * {@link CatalogChangeListener}, the reload on a fixed interval is only a
+ * safety net and can be set long. Once the patches pile up past
+ * catalog.compaction-threshold they are folded into a freshly indexed base on
+ * a background thread.
+ */
+public class CatalogCache {
+	private CatalogCache() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	private static final long REFRESH_INTERVAL = ConfigUtil.getLong("catalog.refresh-interval-ms", 300000);
+	private static final boolean LISTEN_ENABLED = ConfigUtil.getBoolean("catalog.listen-enabled", true);
+	private static final int COMPACTION_THRESHOLD = ConfigUtil.getInt("catalog.compaction-threshold", 1024);
+	private static final AtomicLong VERSION = new AtomicLong();
+	private static final AtomicBoolean COMPACTING = new AtomicBoolean();
+	private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "catalog-compactor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static volatile CatalogSnapshot snapshot;
+
+	static {
+		if (REFRESH_INTERVAL > 0) {
+			ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "catalog-refresher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			refresher.scheduleWithFixedDelay(CatalogCache::refreshQuietly, REFRESH_INTERVAL, REFRESH_INTERVAL,
+					TimeUnit.MILLISECONDS);
+		}
+		if (LISTEN_ENABLED) {
+			CatalogChangeListener.start();
+		}
+	}
+
+	/**
+	 * This method returns the current snapshot, loading it on the first call
+	 *
+	 * @return
+	 * @throws DbException
+	 */
+	public static CatalogSnapshot get() throws DbException {
+		CatalogSnapshot current = snapshot;
+		if (current == null) {
+			synchronized (CatalogCache.class) {
+				current = snapshot;
+				if (current == null) {
+					current = refresh();
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * This method is used to check whether a snapshot has been loaded yet
+	 *
+	 * @return
+	 */
+	static boolean isLoaded() {
+		return snapshot != null;
+	}
+
+	/**
+	 * This method reloads the catalog and swaps in the new snapshot. Readers keep
+	 * using the old one until the swap. Rows are streamed straight into the
+	 * compact store, they are never all held as Show objects.
+	 *
+	 * The reload reads from the primary. The new snapshot replaces one that may
+	 * already carry changes applied from notifications, and a lagging replica
+	 * would drop them until the next reload, as no notification is sent again.
+	 *
+	 * @return
+	 * @throws DbException
+	 */
+	public static CatalogSnapshot refresh() throws DbException {
+		long version = VERSION.incrementAndGet();
+		CompactCatalog.Builder catalog = new CompactCatalog.Builder();
+		ShowListDao.forEachShow(catalog::add, true);
+		CatalogSnapshot loaded = new CatalogSnapshot(version, catalog.build());
+		synchronized (CatalogCache.class) {
+			if (snapshot == null || snapshot.getVersion() < loaded.getVersion()) {
+				snapshot = loaded;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * This method swaps in a snapshot with the given shows added or replaced and
+	 * the given ids removed. Nothing is read from the database, the snapshot is
+	 * loaded first if this is the first use. A bulk change should come in one
+	 * call, it is applied as a single patch.
+	 *
+	 * @param upserts
+	 * @param removedIds
+	 * @return
+	 * @throws DbException
+	 */
+	public static CatalogSnapshot apply(Collection<Show> upserts, int... removedIds) throws DbException {
+		get();
+		CatalogSnapshot patched;
+		synchronized (CatalogCache.class) {
+			patched = snapshot.patch(VERSION.incrementAndGet(), upserts, removedIds);
+			snapshot = patched;
+		}
+		if (patched.needsCompaction(COMPACTION_THRESHOLD) && COMPACTING.compareAndSet(false, true)) {
+			COMPACTOR.execute(CatalogCache::compact);
+		}
+		return patched;
+	}
+
+	/**
+	 * Rebuilds the indexed base from the current snapshot without holding the
+	 * lock, then replays whatever was patched in the meantime onto it. A reload
+	 * that finished in the meantime wins, the rebuilt base is dropped.
+	 */
+	private static void compact() {
+		try {
+			CatalogSnapshot start = snapshot;
+			CatalogIndex index = start.compact();
+			synchronized (CatalogCache.class) {
+				CatalogSnapshot rebased = snapshot.rebase(VERSION.incrementAndGet(), start, index);
+				if (rebased != null) {
+					snapshot = rebased;
+				}
+			}
+		} catch (RuntimeException e) {
+			Logger.exception(e);
+		} finally {
+			COMPACTING.set(false);
+		}
+	}
+
+	/**
+	 * This method swaps in a snapshot with the show added, or replaced when a
+	 * show with the same id exists
+	 *
+	 * @param show
+	 * @return
+	 * @throws DbException
+	 */
+	public static CatalogSnapshot upsert(Show show) throws DbException {
+		return apply(Collections.singletonList(show));
+	}
+
+	/**
+	 * This method swaps in a snapshot without the show with the given id
+	 *
+	 * @param movieId
+	 * @return
+	 * @throws DbException
+	 */
+	public static CatalogSnapshot remove(int movieId) throws DbException {
+		return apply(Collections.<Show>emptyList(), movieId);
+	}
+
+	private static void refreshQuietly() {
+		try {
+			refresh();
+		} catch (DbException e) {
+			Logger.exception(e);
+		}
+	}
+}
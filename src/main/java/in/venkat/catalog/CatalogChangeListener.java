@@ -0,0 +1,134 @@
+package in.venkat.catalog;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import in.venkat.dao.ShowListDao;
+import in.venkat.exceptions.DbException;
+import in.venkat.model.Show;
+import in.venkat.util.ConfigUtil;
+import in.venkat.util.ConnectionUtil;
+import in.venkat.util.Logger;
+
+/**
+ * Keeps the local {@link CatalogCache} in step with changes made on other
+ * nodes. A daemon thread holds a dedicated connection listening on the catalog
+ * channel, and patches the cached snapshot with the shows named in each batch
+ * of notifications. Notifications sent by this node are skipped, its own
+ * changes are already in the snapshot. Changes made while the listener was
+ * disconnected are picked up with a full reload from the primary once it
+ * reconnects.
+ */
+class CatalogChangeListener implements Runnable {
+	private static final int POLL_TIMEOUT = ConfigUtil.getInt("catalog.listen-poll-ms", 10000);
+	private static final long MIN_BACKOFF = 1000;
+	private static final long MAX_BACKOFF = 60000;
+
+	/**
+	 * This method starts the listener thread
+	 */
+	static void start() {
+		Thread thread = new Thread(new CatalogChangeListener(), "catalog-listener");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		long backoff = MIN_BACKOFF;
+		boolean reconnecting = false;
+		while (!Thread.currentThread().isInterrupted()) {
+			Connection connection = null;
+			Statement statement = null;
+			try {
+				connection = ConnectionUtil.openDedicatedConnection();
+				statement = connection.createStatement();
+				statement.execute("LISTEN " + ShowListDao.CATALOG_CHANNEL);
+				if (reconnecting && CatalogCache.isLoaded()) {
+					CatalogCache.refresh();
+				}
+				backoff = MIN_BACKOFF;
+				PGConnection listener = connection.unwrap(PGConnection.class);
+				while (!Thread.currentThread().isInterrupted()) {
+					PGNotification[] notifications = listener.getNotifications(POLL_TIMEOUT);
+					if (notifications != null && notifications.length > 0 && CatalogCache.isLoaded()) {
+						apply(notifications);
+					}
+				}
+			} catch (SQLException | DbException | RuntimeException e) {
+				Logger.log("catalog listener disconnected, retrying in " + backoff + " ms");
+				Logger.exception(e);
+			} finally {
+				ConnectionUtil.close(statement, connection);
+			}
+			reconnecting = true;
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			backoff = Math.min(backoff * 2, MAX_BACKOFF);
+		}
+	}
+
+	/**
+	 * This method patches the cache with one batch of notifications. The latest
+	 * operation per id wins, the changed shows are read back in one query from
+	 * the primary so a lagging replica cannot undo the change.
+	 *
+	 * @param notifications
+	 * @throws DbException
+	 */
+	private static void apply(PGNotification[] notifications) throws DbException {
+		Map<Integer, String> changes = new LinkedHashMap<>();
+		for (PGNotification notification : notifications) {
+			String[] parts = notification.getParameter().split(":");
+			if (parts.length > 2 && ShowListDao.NODE_ID.equals(parts[2])) {
+				continue;
+			}
+			try {
+				int movieId = Integer.parseInt(parts[1].trim());
+				changes.remove(movieId);
+				changes.put(movieId, parts[0]);
+			} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+				Logger.log("ignoring catalog notification " + notification.getParameter());
+			}
+		}
+		List<Integer> upserts = new ArrayList<>();
+		List<Integer> removals = new ArrayList<>();
+		for (Map.Entry<Integer, String> change : changes.entrySet()) {
+			if (ShowListDao.CHANGE_REMOVE.equals(change.getValue())) {
+				removals.add(change.getKey());
+			} else {
+				upserts.add(change.getKey());
+			}
+		}
+
+		if (upserts.isEmpty() && removals.isEmpty()) {
+			return;
+		}
+		Map<Integer, Show> shows = ShowListDao.getShowsByIds(toArray(upserts), true);
+		for (Integer movieId : upserts) {
+			if (!shows.containsKey(movieId)) {
+				removals.add(movieId);
+			}
+		}
+		CatalogCache.apply(shows.values(), toArray(removals));
+	}
+
+	private static int[] toArray(List<Integer> ids) {
+		int[] array = new int[ids.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = ids.get(i);
+		}
+		return array;
+	}
+}
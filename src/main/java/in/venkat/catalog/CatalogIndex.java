@@ -0,0 +1,170 @@
+package in.venkat.catalog;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import in.venkat.model.Show;
+
+/**
+ * Immutable, fully indexed part of a {@link CatalogSnapshot}. Every index is
+ * built once, in the constructor, and is then shared by all the snapshots
+ * patched on top of it until the next compaction replaces it. Titles are
+ * addressed by their position in the {@link CompactCatalog}.
+ */
+class CatalogIndex {
+	private final CompactCatalog catalog;
+	private final IntIndexMap positionsById;
+	private final Map<ShowAttribute, Map<String, BitSet>> bitmaps = new EnumMap<>(ShowAttribute.class);
+	private final TrigramIndex nameIndex;
+	/**
+	 * Open addressing table of position + 1 by name, year and language, 0 marks
+	 * an empty slot
+	 */
+	private final int[] titleSlots;
+	private final BkTree titleTree;
+	private final TitleAutocomplete autocomplete;
+	private final BitSet kidsPositions;
+
+	CatalogIndex(CompactCatalog catalog) {
+		this.catalog = catalog;
+		int size = catalog.size();
+		this.positionsById = new IntIndexMap(size);
+		for (ShowAttribute attribute : ShowAttribute.values()) {
+			bitmaps.put(attribute, new HashMap<>());
+		}
+		this.titleSlots = new int[Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1];
+		for (int position = 0; position < size; position++) {
+			Show show = catalog.get(position);
+			positionsById.put(show.getId(), position);
+			for (ShowAttribute attribute : ShowAttribute.values()) {
+				bitmaps.get(attribute).computeIfAbsent(attribute.keyOf(show), k -> new BitSet(size)).set(position);
+			}
+			int slot = titleHash(show.getMovieName(), show.getMovieYear(), show.getMovieLanguage());
+			while (titleSlots[slot & (titleSlots.length - 1)] != 0) {
+				slot++;
+			}
+			titleSlots[slot & (titleSlots.length - 1)] = position + 1;
+		}
+		this.nameIndex = new TrigramIndex(catalog::getName, size);
+		/**
+		 * The lowercased titles are only needed while the title indexes are
+		 * built, afterwards they are derived from the catalog names on demand
+		 */
+		String[] lowerTitles = new String[size];
+		int[] likes = new int[size];
+		for (int position = 0; position < size; position++) {
+			lowerTitles[position] = ShowAttribute.normalize(catalog.getName(position));
+			likes[position] = catalog.getLikes(position);
+		}
+		IntFunction<String> lowerTitle = position -> ShowAttribute.normalize(catalog.getName(position));
+		this.titleTree = new BkTree(lowerTitles, lowerTitle);
+		this.autocomplete = new TitleAutocomplete(lowerTitles, likes, lowerTitle);
+		this.kidsPositions = new BitSet(size);
+		for (String genre : KidsZoneRules.getGenres()) {
+			orInto(kidsPositions, ShowAttribute.GENRE, genre);
+		}
+		for (String grade : KidsZoneRules.getGrades()) {
+			orInto(kidsPositions, ShowAttribute.GRADE, grade);
+		}
+	}
+
+	int size() {
+		return catalog.size();
+	}
+
+	Show get(int position) {
+		return catalog.get(position);
+	}
+
+	int getId(int position) {
+		return catalog.getId(position);
+	}
+
+	String getKey(ShowAttribute attribute, int position) {
+		return catalog.getKey(attribute, position);
+	}
+
+	/**
+	 * This method gives the position of the show with the id, or -1 when there
+	 * is none
+	 *
+	 * @param movieId
+	 * @return
+	 */
+	int positionOf(int movieId) {
+		return positionsById.get(movieId);
+	}
+
+	/**
+	 * This method is used to check whether a title with the same name, year and
+	 * language is at a position that is not excluded
+	 *
+	 * @param name
+	 * @param year
+	 * @param language trimmed
+	 * @param excluded
+	 * @return
+	 */
+	boolean containsTitle(String name, int year, String language, BitSet excluded) {
+		int mask = titleSlots.length - 1;
+		for (int slot = titleHash(name, year, language); titleSlots[slot & mask] != 0; slot++) {
+			int position = titleSlots[slot & mask] - 1;
+			if (!excluded.get(position) && catalog.getYear(position) == year && catalog.getName(position).equals(name)
+					&& catalog.getLanguage(position).equalsIgnoreCase(language)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int titleHash(String name, int year, String language) {
+		int hash = (name.hashCode() * 31 + year) * 31 + language.toLowerCase(Locale.ROOT).hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * This method gives the positions whose attribute has the normalized key, or
+	 * null when no title has it. The bitmap is shared and must not be changed.
+	 *
+	 * @param attribute
+	 * @param key
+	 * @return
+	 */
+	BitSet matching(ShowAttribute attribute, String key) {
+		return bitmaps.get(attribute).get(key);
+	}
+
+	int[] searchByName(String query) {
+		return nameIndex.search(query);
+	}
+
+	List<BkTree.Match> fuzzySearch(String query, int maxEdits) {
+		return titleTree.search(query, maxEdits);
+	}
+
+	int[] complete(String prefix, int limit, BitSet excluded) {
+		return autocomplete.complete(prefix, limit, excluded);
+	}
+
+	/**
+	 * This method gives the positions of the kids zone titles. The bitmap is
+	 * shared and must not be changed.
+	 *
+	 * @return
+	 */
+	BitSet kids() {
+		return kidsPositions;
+	}
+
+	private void orInto(BitSet target, ShowAttribute attribute, String value) {
+		BitSet match = bitmaps.get(attribute).get(value);
+		if (match != null) {
+			target.or(match);
+		}
+	}
+}
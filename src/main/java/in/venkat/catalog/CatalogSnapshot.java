@@ -0,0 +1,475 @@
+package in.venkat.catalog;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import in.venkat.model.Show;
+
+/**
+ * Immutable view of the shows table at one point in time. A snapshot is a
+ * fully indexed {@link CatalogIndex} plus the changes made since it was built:
+ * a bitmap of the base positions that were removed or replaced, and the shows
+ * added or replaced since, by id. Patching copies only those changes, so an
+ * admin write costs time in the number of recent changes, not in the size of
+ * the catalog. {@link CatalogCache} folds the changes into a new base in the
+ * background once they pass catalog.compaction-threshold. Readers never see a
+ * partially updated catalog, and every Show handed out is a detached copy.
+ */
+public class CatalogSnapshot {
+	private final long version;
+	private final CatalogIndex base;
+	/**
+	 * Base positions that were removed or replaced, never changed once the
+	 * snapshot is published
+	 */
+	private final BitSet removed;
+	private final int removedCount;
+	private final Map<Integer, Show> delta;
+	private final Set<String> deltaTitles;
+	private volatile List<Show> kidsShows;
+
+	CatalogSnapshot(long version, List<Show> shows) {
+		this(version, CompactCatalog.of(shows));
+	}
+
+	CatalogSnapshot(long version, CompactCatalog catalog) {
+		this(version, new CatalogIndex(catalog), new BitSet(), 0, Collections.<Integer, Show>emptyMap());
+	}
+
+	private CatalogSnapshot(long version, CatalogIndex base, BitSet removed, int removedCount,
+			Map<Integer, Show> delta) {
+		this.version = version;
+		this.base = base;
+		this.removed = removed;
+		this.removedCount = removedCount;
+		this.delta = delta;
+		this.deltaTitles = new HashSet<>(delta.size() * 2);
+		for (Show show : delta.values()) {
+			deltaTitles.add(titleKey(show.getMovieName(), show.getMovieYear(), show.getMovieLanguage()));
+		}
+	}
+
+	/**
+	 * This method builds a standalone snapshot of the catalog, outside the cache,
+	 * for example to measure it
+	 *
+	 * @param catalog
+	 * @return
+	 */
+	public static CatalogSnapshot of(CompactCatalog catalog) {
+		return new CatalogSnapshot(0, catalog);
+	}
+
+	/**
+	 * This method builds the next snapshot from this one with the given shows
+	 * added or replaced by id and the given ids removed, without reading the
+	 * table again. Only the recent changes are copied, the base and its indexes
+	 * are shared.
+	 *
+	 * @param version
+	 * @param upserts
+	 * @param removedIds
+	 * @return
+	 */
+	CatalogSnapshot patch(long version, Collection<Show> upserts, int[] removedIds) {
+		Map<Integer, Show> patchedDelta = new LinkedHashMap<>(delta);
+		BitSet patchedRemoved = removed;
+		int patchedRemovedCount = removedCount;
+		for (Show show : upserts) {
+			int position = base.positionOf(show.getId());
+			if (position >= 0 && !patchedRemoved.get(position)) {
+				patchedRemoved = patchedRemoved == removed ? (BitSet) removed.clone() : patchedRemoved;
+				patchedRemoved.set(position);
+				patchedRemovedCount++;
+			}
+			patchedDelta.put(show.getId(), copy(show));
+		}
+		for (int movieId : removedIds) {
+			int position = base.positionOf(movieId);
+			if (position >= 0 && !patchedRemoved.get(position)) {
+				patchedRemoved = patchedRemoved == removed ? (BitSet) removed.clone() : patchedRemoved;
+				patchedRemoved.set(position);
+				patchedRemovedCount++;
+			}
+			patchedDelta.remove(movieId);
+		}
+		return new CatalogSnapshot(version, base, patchedRemoved, patchedRemovedCount, patchedDelta);
+	}
+
+	/**
+	 * This method is used to check whether the changes on top of the base have
+	 * grown past the threshold, so that the base should be rebuilt
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	boolean needsCompaction(int threshold) {
+		return delta.size() + removedCount > threshold;
+	}
+
+	/**
+	 * This method builds a new fully indexed base holding every show of this
+	 * snapshot. It takes time in the size of the catalog and is meant to run in
+	 * the background.
+	 *
+	 * @return
+	 */
+	CatalogIndex compact() {
+		CompactCatalog.Builder catalog = new CompactCatalog.Builder(size());
+		for (int position = removed.nextClearBit(0); position < base.size(); position = removed
+				.nextClearBit(position + 1)) {
+			catalog.add(base.get(position));
+		}
+		for (Show show : delta.values()) {
+			catalog.add(show);
+		}
+		return new CatalogIndex(catalog.build());
+	}
+
+	/**
+	 * This method moves this snapshot onto a base compacted from an earlier
+	 * snapshot, replaying the changes made since that snapshot was taken
+	 *
+	 * @param version
+	 * @param compacted the snapshot the base was built from
+	 * @param index     the base built from it
+	 * @return the new snapshot, or null when this snapshot no longer shares a base
+	 *         with the compacted one because the catalog was reloaded
+	 */
+	CatalogSnapshot rebase(long version, CatalogSnapshot compacted, CatalogIndex index) {
+		if (compacted.base != base) {
+			return null;
+		}
+		List<Show> upserts = new ArrayList<>();
+		for (Map.Entry<Integer, Show> change : delta.entrySet()) {
+			if (compacted.delta.get(change.getKey()) != change.getValue()) {
+				upserts.add(change.getValue());
+			}
+		}
+		List<Integer> removals = new ArrayList<>();
+		for (Integer movieId : compacted.delta.keySet()) {
+			if (!delta.containsKey(movieId)) {
+				removals.add(movieId);
+			}
+		}
+		BitSet removedSince = (BitSet) removed.clone();
+		removedSince.andNot(compacted.removed);
+		for (int position = removedSince.nextSetBit(0); position >= 0; position = removedSince
+				.nextSetBit(position + 1)) {
+			if (!delta.containsKey(base.getId(position))) {
+				removals.add(base.getId(position));
+			}
+		}
+		int[] removedIds = new int[removals.size()];
+		for (int i = 0; i < removedIds.length; i++) {
+			removedIds[i] = removals.get(i);
+		}
+		return new CatalogSnapshot(version, index, new BitSet(), 0, Collections.<Integer, Show>emptyMap())
+				.patch(version, upserts, removedIds);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * This method gives every show, base titles in catalog order followed by the
+	 * recent changes
+	 *
+	 * @return
+	 */
+	public List<Show> getShows() {
+		return Collections.unmodifiableList(filter(show -> true));
+	}
+
+	public int size() {
+		return base.size() - removedCount + delta.size();
+	}
+
+	/**
+	 * This method is used to get a show by id in constant time
+	 *
+	 * @param movieId
+	 * @return the show, or null when the id does not exist
+	 */
+	public Show getById(int movieId) {
+		Show changed = delta.get(movieId);
+		if (changed != null) {
+			return copy(changed);
+		}
+		int position = base.positionOf(movieId);
+		return position < 0 || removed.get(position) ? null : base.get(position);
+	}
+
+	/**
+	 * This method gives the index key of the show's attribute by id in constant
+	 * time, without creating a Show
+	 *
+	 * @param attribute
+	 * @param movieId
+	 * @return the key, or null when the id does not exist
+	 */
+	public String getKey(ShowAttribute attribute, int movieId) {
+		Show changed = delta.get(movieId);
+		if (changed != null) {
+			return attribute.keyOf(changed);
+		}
+		int position = base.positionOf(movieId);
+		return position < 0 || removed.get(position) ? null : base.getKey(attribute, position);
+	}
+
+	/**
+	 * This method is used to check in constant time whether a show with the same
+	 * name, year and language exists. The name must match exactly, the language
+	 * ignoring case, as the unique index on the shows table does.
+	 *
+	 * @param name
+	 * @param year
+	 * @param language
+	 * @return
+	 */
+	public boolean containsTitle(String name, int year, String language) {
+		String trimmed = language.trim();
+		return deltaTitles.contains(titleKey(name, year, trimmed)) || base.containsTitle(name, year, trimmed, removed);
+	}
+
+	private static String titleKey(String name, int year, String language) {
+		return name + '\n' + year + '\n' + language.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * This method is used to get the shows whose attribute equals the value,
+	 * ignoring case
+	 *
+	 * @param attribute
+	 * @param value
+	 * @return
+	 */
+	public List<Show> search(ShowAttribute attribute, String value) {
+		return search(Collections.singletonMap(attribute, value));
+	}
+
+	/**
+	 * This method is used to get the shows matching every criterion. The base
+	 * bitmaps of the criteria are intersected, smallest first, and only the hits
+	 * are materialized. The recent changes are checked one by one.
+	 *
+	 * @param criteria
+	 * @return
+	 */
+	public List<Show> search(Map<ShowAttribute, String> criteria) {
+		List<BitSet> matches = new ArrayList<>();
+		boolean baseMatches = true;
+		for (Map.Entry<ShowAttribute, String> criterion : criteria.entrySet()) {
+			BitSet match = base.matching(criterion.getKey(), ShowAttribute.normalize(criterion.getValue()));
+			if (match == null) {
+				baseMatches = false;
+				break;
+			}
+			matches.add(match);
+		}
+		List<Show> result;
+		if (!baseMatches) {
+			result = new ArrayList<>();
+		} else if (matches.isEmpty()) {
+			BitSet all = new BitSet(base.size());
+			all.set(0, base.size());
+			result = materialize(all);
+		} else {
+			matches.sort(Comparator.comparingInt(BitSet::cardinality));
+			BitSet hits = (BitSet) matches.get(0).clone();
+			for (int i = 1; i < matches.size() && !hits.isEmpty(); i++) {
+				hits.and(matches.get(i));
+			}
+			result = materialize(hits);
+		}
+		for (Show show : delta.values()) {
+			if (matchesAll(show, criteria)) {
+				result.add(copy(show));
+			}
+		}
+		return result;
+	}
+
+	private static boolean matchesAll(Show show, Map<ShowAttribute, String> criteria) {
+		for (Map.Entry<ShowAttribute, String> criterion : criteria.entrySet()) {
+			if (!criterion.getKey().keyOf(show).equals(ShowAttribute.normalize(criterion.getValue()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method is used to get the shows whose name contains the query,
+	 * ignoring case
+	 *
+	 * @param query
+	 * @return
+	 */
+	public List<Show> searchByName(String query) {
+		int[] positions = base.searchByName(query);
+		List<Show> result = new ArrayList<>(positions.length);
+		for (int position : positions) {
+			if (!removed.get(position)) {
+				result.add(base.get(position));
+			}
+		}
+		String lowerQuery = query.toLowerCase(Locale.ROOT);
+		for (Show show : delta.values()) {
+			if (show.getMovieName() != null && show.getMovieName().toLowerCase(Locale.ROOT).contains(lowerQuery)) {
+				result.add(copy(show));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This method is used to get the shows whose whole name is within maxEdits
+	 * of the query, closest first and then most liked, at most limit of them
+	 *
+	 * @param query
+	 * @param maxEdits
+	 * @param limit
+	 * @return
+	 */
+	public List<Show> fuzzySearchByName(String query, int maxEdits, int limit) {
+		String normalizedQuery = ShowAttribute.normalize(query);
+		List<Show> candidates = new ArrayList<>();
+		Map<Show, Integer> distances = new IdentityHashMap<>();
+		for (BkTree.Match match : base.fuzzySearch(normalizedQuery, maxEdits)) {
+			for (int position : match.getPositions()) {
+				if (!removed.get(position)) {
+					Show show = base.get(position);
+					candidates.add(show);
+					distances.put(show, match.getDistance());
+				}
+			}
+		}
+		for (Show changed : delta.values()) {
+			int distance = BkTree.distance(normalizedQuery, ShowAttribute.normalize(changed.getMovieName()), maxEdits);
+			if (distance <= maxEdits) {
+				Show show = copy(changed);
+				candidates.add(show);
+				distances.put(show, distance);
+			}
+		}
+		candidates.sort(Comparator.<Show>comparingInt(distances::get)
+				.thenComparing(Comparator.comparingInt(Show::getLikes).reversed()));
+		return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+	}
+
+	/**
+	 * This method is used to get the most liked shows whose name starts with the
+	 * prefix, ignoring case
+	 *
+	 * @param prefix
+	 * @param limit
+	 * @return
+	 */
+	public List<Show> autocomplete(String prefix, int limit) {
+		String lowerPrefix = prefix.replaceAll("^\\s+", "").toLowerCase(Locale.ROOT);
+		int[] positions = base.complete(lowerPrefix, limit, removed);
+		List<Show> result = new ArrayList<>(positions.length);
+		for (int position : positions) {
+			result.add(base.get(position));
+		}
+		boolean changed = false;
+		for (Show show : delta.values()) {
+			if (ShowAttribute.normalize(show.getMovieName()).startsWith(lowerPrefix)) {
+				result.add(copy(show));
+				changed = true;
+			}
+		}
+		if (changed) {
+			result.sort(Comparator.comparingInt(Show::getLikes).reversed());
+		}
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+
+	/**
+	 * This method is used to get the shows allowed in the kids zone. The list is
+	 * computed once per snapshot from the kids bitmap of the base and the recent
+	 * changes, each caller gets its own copies of the shows, so that setting the
+	 * likes on one does not change what the next caller sees.
+	 *
+	 * @return
+	 */
+	public List<Show> getKidsShows() {
+		List<Show> kids = kidsShows;
+		if (kids == null) {
+			List<Show> eligible = materialize(base.kids());
+			for (Show show : delta.values()) {
+				if (KidsZoneRules.getGenres().contains(ShowAttribute.GENRE.keyOf(show))
+						|| KidsZoneRules.getGrades().contains(ShowAttribute.GRADE.keyOf(show))) {
+					eligible.add(copy(show));
+				}
+			}
+			kids = Collections.unmodifiableList(eligible);
+			kidsShows = kids;
+		}
+		List<Show> result = new ArrayList<>(kids.size());
+		for (Show show : kids) {
+			result.add(copy(show));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the base shows at the hit positions that were not removed since
+	 */
+	private List<Show> materialize(BitSet hits) {
+		List<Show> result = new ArrayList<>(hits.cardinality());
+		for (int position = hits.nextSetBit(0); position >= 0; position = hits.nextSetBit(position + 1)) {
+			if (!removed.get(position)) {
+				result.add(base.get(position));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This method is used to get the shows matching the filter, base titles in
+	 * catalog order followed by the recent changes
+	 *
+	 * @param filter
+	 * @return
+	 */
+	public List<Show> filter(Predicate<Show> filter) {
+		List<Show> matches = new ArrayList<>();
+		for (int position = removed.nextClearBit(0); position < base.size(); position = removed
+				.nextClearBit(position + 1)) {
+			Show show = base.get(position);
+			if (filter.test(show)) {
+				matches.add(show);
+			}
+		}
+		for (Show changed : delta.values()) {
+			Show show = copy(changed);
+			if (filter.test(show)) {
+				matches.add(show);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Shows are mutable, the recent changes are kept and handed out as copies
+	 */
+	private static Show copy(Show show) {
+		return new Show(show.getId(), show.getMovieGenre(), show.getMovieName(), show.getMovieYear(),
+				show.getMovieLanguage(), show.getMovieCategory(), show.getMembership(), show.getMovieGrade(),
+				show.getStatus(), show.getLikes());
+	}
+}
@@ -0,0 +1,262 @@
+package in.venkat.catalog;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import in.venkat.model.Show;
+
+/**
+ * Column store for the catalog. Ids, years and likes are kept in int arrays,
+ * the low cardinality columns (genre, language, category, membership, grade and
+ * status) as short codes into a dictionary holding each distinct value once,
+ * so a title costs a few dozen bytes plus its name instead of a Show object
+ * with its own copy of every string. Show objects are created on demand as
+ * detached copies, changing one does not change the catalog.
+ */
+public class CompactCatalog {
+	private final int size;
+	private final int[] ids;
+	private final String[] names;
+	private final int[] years;
+	private final int[] likes;
+	private final Dictionary genres;
+	private final short[] genreCodes;
+	private final Dictionary languages;
+	private final short[] languageCodes;
+	private final Dictionary categories;
+	private final short[] categoryCodes;
+	private final Dictionary memberships;
+	private final short[] membershipCodes;
+	private final Dictionary grades;
+	private final short[] gradeCodes;
+	private final Dictionary statuses;
+	private final short[] statusCodes;
+
+	private CompactCatalog(Builder builder) {
+		size = builder.size;
+		ids = Arrays.copyOf(builder.ids, size);
+		names = Arrays.copyOf(builder.names, size);
+		years = Arrays.copyOf(builder.years, size);
+		likes = Arrays.copyOf(builder.likes, size);
+		genres = builder.genres;
+		genreCodes = Arrays.copyOf(builder.genreCodes, size);
+		languages = builder.languages;
+		languageCodes = Arrays.copyOf(builder.languageCodes, size);
+		categories = builder.categories;
+		categoryCodes = Arrays.copyOf(builder.categoryCodes, size);
+		memberships = builder.memberships;
+		membershipCodes = Arrays.copyOf(builder.membershipCodes, size);
+		grades = builder.grades;
+		gradeCodes = Arrays.copyOf(builder.gradeCodes, size);
+		statuses = builder.statuses;
+		statusCodes = Arrays.copyOf(builder.statusCodes, size);
+	}
+
+	/**
+	 * This method is used to build a compact catalog from a list of shows
+	 *
+	 * @param shows
+	 * @return
+	 */
+	public static CompactCatalog of(List<Show> shows) {
+		Builder builder = new Builder(shows.size());
+		for (Show show : shows) {
+			builder.add(show);
+		}
+		return builder.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getId(int position) {
+		return ids[position];
+	}
+
+	public String getName(int position) {
+		return names[position];
+	}
+
+	public int getYear(int position) {
+		return years[position];
+	}
+
+	public int getLikes(int position) {
+		return likes[position];
+	}
+
+	public String getLanguage(int position) {
+		return languages.value(languageCodes[position]);
+	}
+
+	/**
+	 * This method gives the index key of the attribute at the position, as
+	 * {@link ShowAttribute#keyOf(Show)} would, without creating the Show. The
+	 * keys of the dictionary columns are normalized once per distinct value.
+	 *
+	 * @param attribute
+	 * @param position
+	 * @return
+	 */
+	public String getKey(ShowAttribute attribute, int position) {
+		switch (attribute) {
+		case GENRE:
+			return genres.key(genreCodes[position]);
+		case LANGUAGE:
+			return languages.key(languageCodes[position]);
+		case CATEGORY:
+			return categories.key(categoryCodes[position]);
+		case MEMBERSHIP:
+			return memberships.key(membershipCodes[position]);
+		case GRADE:
+			return grades.key(gradeCodes[position]);
+		default:
+			return String.valueOf(years[position]);
+		}
+	}
+
+	/**
+	 * This method creates a Show for the title at the position
+	 *
+	 * @param position
+	 * @return
+	 */
+	public Show get(int position) {
+		return new Show(ids[position], genres.value(genreCodes[position]), names[position], years[position],
+				languages.value(languageCodes[position]), categories.value(categoryCodes[position]),
+				memberships.value(membershipCodes[position]), grades.value(gradeCodes[position]),
+				statuses.value(statusCodes[position]), likes[position]);
+	}
+
+	/**
+	 * This method gives a read-only list view of the catalog. Each get() creates
+	 * its Show on demand.
+	 *
+	 * @return
+	 */
+	public List<Show> asList() {
+		return new AbstractList<Show>() {
+			@Override
+			public Show get(int position) {
+				return CompactCatalog.this.get(position);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Collects shows one at a time, so a catalog can be loaded from a streamed
+	 * result set without first holding every row as a Show
+	 */
+	public static class Builder {
+		private int size;
+		private int[] ids;
+		private String[] names;
+		private int[] years;
+		private int[] likes;
+		private final Dictionary genres = new Dictionary();
+		private short[] genreCodes;
+		private final Dictionary languages = new Dictionary();
+		private short[] languageCodes;
+		private final Dictionary categories = new Dictionary();
+		private short[] categoryCodes;
+		private final Dictionary memberships = new Dictionary();
+		private short[] membershipCodes;
+		private final Dictionary grades = new Dictionary();
+		private short[] gradeCodes;
+		private final Dictionary statuses = new Dictionary();
+		private short[] statusCodes;
+
+		public Builder() {
+			this(1024);
+		}
+
+		public Builder(int expectedSize) {
+			allocate(Math.max(16, expectedSize));
+		}
+
+		/**
+		 * This method appends the show to the catalog being built
+		 *
+		 * @param show
+		 */
+		public void add(Show show) {
+			if (size == ids.length) {
+				allocate(size * 2);
+			}
+			ids[size] = show.getId();
+			names[size] = show.getMovieName();
+			years[size] = show.getMovieYear();
+			likes[size] = show.getLikes();
+			genreCodes[size] = genres.code(show.getMovieGenre());
+			languageCodes[size] = languages.code(show.getMovieLanguage());
+			categoryCodes[size] = categories.code(show.getMovieCategory());
+			membershipCodes[size] = memberships.code(show.getMembership());
+			gradeCodes[size] = grades.code(show.getMovieGrade());
+			statusCodes[size] = statuses.code(show.getStatus());
+			size++;
+		}
+
+		public CompactCatalog build() {
+			return new CompactCatalog(this);
+		}
+
+		private void allocate(int capacity) {
+			ids = ids == null ? new int[capacity] : Arrays.copyOf(ids, capacity);
+			names = names == null ? new String[capacity] : Arrays.copyOf(names, capacity);
+			years = years == null ? new int[capacity] : Arrays.copyOf(years, capacity);
+			likes = likes == null ? new int[capacity] : Arrays.copyOf(likes, capacity);
+			genreCodes = genreCodes == null ? new short[capacity] : Arrays.copyOf(genreCodes, capacity);
+			languageCodes = languageCodes == null ? new short[capacity] : Arrays.copyOf(languageCodes, capacity);
+			categoryCodes = categoryCodes == null ? new short[capacity] : Arrays.copyOf(categoryCodes, capacity);
+			membershipCodes = membershipCodes == null ? new short[capacity]
+					: Arrays.copyOf(membershipCodes, capacity);
+			gradeCodes = gradeCodes == null ? new short[capacity] : Arrays.copyOf(gradeCodes, capacity);
+			statusCodes = statusCodes == null ? new short[capacity] : Arrays.copyOf(statusCodes, capacity);
+		}
+	}
+
+	/**
+	 * Distinct values of one column, each stored once and referred to by its
+	 * position. Values are kept exactly as read, including case, with their
+	 * normalized index key beside them.
+	 */
+	private static class Dictionary {
+		private static final int MAX_CODES = 1 << 16;
+
+		private final Map<String, Short> codes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+		private final List<String> keys = new ArrayList<>();
+
+		short code(String value) {
+			Short code = codes.get(value);
+			if (code == null) {
+				if (values.size() == MAX_CODES) {
+					throw new IllegalStateException("more than " + MAX_CODES + " distinct values in a catalog column");
+				}
+				code = (short) values.size();
+				codes.put(value, code);
+				values.add(value);
+				keys.add(ShowAttribute.normalize(value));
+			}
+			return code;
+		}
+
+		String value(short code) {
+			return values.get(code & 0xFFFF);
+		}
+
+		String key(short code) {
+			return keys.get(code & 0xFFFF);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package in.venkat.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size open addressing map from int keys to non negative int values,
+ * with linear probing and no boxing. Built once per snapshot, so there is no
+ * removal and no resizing.
+ */
+class IntIndexMap {
+	private static final int MISSING = -1;
+
+	private final int[] keys;
+	private final int[] values;
+	private final int mask;
+
+	IntIndexMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * This method maps the key to the value, replacing an earlier value
+	 *
+	 * @param key
+	 * @param value must not be negative
+	 */
+	void put(int key, int value) {
+		int slot = slot(key);
+		while (values[slot] != MISSING && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	/**
+	 * This method gives the value of the key, or -1 when it is absent
+	 *
+	 * @param key
+	 * @return
+	 */
+	int get(int key) {
+		int slot = slot(key);
+		while (values[slot] != MISSING) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return MISSING;
+	}
+
+	private int slot(int key) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,41 @@
+package in.venkat.catalog;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import in.venkat.util.ConfigUtil;
+
+/**
+ * Which shows are shown in the kids zone: every show of one of the kids genres
+ * or of one of the kids grades. Both lists are comma separated environment
+ * settings.
+ */
+public class KidsZoneRules {
+	private KidsZoneRules() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	private static final Set<String> GENRES = parse(ConfigUtil.getString("kids.genres", "comedy,adventure,kids"));
+	private static final Set<String> GRADES = parse(ConfigUtil.getString("kids.grades", "u,v"));
+
+	public static Set<String> getGenres() {
+		return GENRES;
+	}
+
+	public static Set<String> getGrades() {
+		return GRADES;
+	}
+
+	private static Set<String> parse(String values) {
+		Set<String> parsed = new LinkedHashSet<>();
+		for (String value : values.split(",")) {
+			if (!value.trim().isEmpty()) {
+				parsed.add(ShowAttribute.normalize(value));
+			}
+		}
+		return Collections.unmodifiableSet(parsed);
+	}
+}
@@ -0,0 +1,41 @@
+package in.venkat.catalog;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+import in.venkat.model.Show;
+
+/**
+ * Show attributes that the catalog snapshot keeps bitmap indexes for. Keys are
+ * compared case insensitively.
+ */
+public enum ShowAttribute {
+	GENRE(Show::getMovieGenre), LANGUAGE(Show::getMovieLanguage), CATEGORY(Show::getMovieCategory),
+	MEMBERSHIP(Show::getMembership), GRADE(Show::getMovieGrade), YEAR(show -> String.valueOf(show.getMovieYear()));
+
+	private final Function<Show, String> value;
+
+	ShowAttribute(Function<Show, String> value) {
+		this.value = value;
+	}
+
+	/**
+	 * This method gives the index key of the show for this attribute
+	 *
+	 * @param show
+	 * @return
+	 */
+	public String keyOf(Show show) {
+		return normalize(value.apply(show));
+	}
+
+	/**
+	 * This method gives the index key of a value, trimmed and in lower case
+	 *
+	 * @param key
+	 * @return
+	 */
+	public static String normalize(String key) {
+		return key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
+	}
+}
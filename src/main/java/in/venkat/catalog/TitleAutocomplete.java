@@ -0,0 +1,144 @@
+package in.venkat.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Prefix lookup over titles sorted by their lowercased form. The titles
+ * sharing a prefix form one contiguous range of the sorted array, found by two
+ * binary searches. A segment tree holding the most liked entry of every range
+ * then yields the top n of that range in n log(size) steps, however many
+ * titles share the prefix.
+ */
+class TitleAutocomplete {
+	private final IntFunction<String> titles;
+	private final int[] sortedPositions;
+	private final int[] likes;
+	private final int[] tree;
+	private final int size;
+
+	/**
+	 * Only the sort order is kept, the binary searches look the titles up by
+	 * position instead of holding a sorted copy of them
+	 *
+	 * @param lowerTitles     lowercased titles by catalog position, read while
+	 *                        sorting
+	 * @param likesByPosition likes by catalog position
+	 * @param titles          looks up the lowercased title at a catalog position
+	 */
+	TitleAutocomplete(String[] lowerTitles, int[] likesByPosition, IntFunction<String> titles) {
+		this.titles = titles;
+		size = lowerTitles.length;
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparing(position -> lowerTitles[position]));
+		sortedPositions = new int[size];
+		likes = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedPositions[i] = order[i];
+			likes[i] = likesByPosition[order[i]];
+		}
+		tree = new int[Math.max(1, 2 * size)];
+		for (int i = 0; i < size; i++) {
+			tree[size + i] = i;
+		}
+		for (int node = size - 1; node > 0; node--) {
+			tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * This method gives the catalog positions of the most liked titles starting
+	 * with the prefix, most liked first, passing over the excluded positions
+	 *
+	 * @param prefix lowercased
+	 * @param limit
+	 * @param excluded
+	 * @return
+	 */
+	int[] complete(String prefix, int limit, BitSet excluded) {
+		int from = lowerBound(prefix);
+		int to = upperBound(prefix, from);
+		int[] result = new int[Math.min(limit, to - from)];
+		PriorityQueue<int[]> ranges = new PriorityQueue<>((left, right) -> Integer.compare(likes[right[2]],
+				likes[left[2]]));
+		if (from < to) {
+			ranges.add(new int[] { from, to, best(from, to) });
+		}
+		int count = 0;
+		while (count < result.length && !ranges.isEmpty()) {
+			int[] range = ranges.poll();
+			int top = range[2];
+			if (!excluded.get(sortedPositions[top])) {
+				result[count++] = sortedPositions[top];
+			}
+			if (range[0] < top) {
+				ranges.add(new int[] { range[0], top, best(range[0], top) });
+			}
+			if (top + 1 < range[1]) {
+				ranges.add(new int[] { top + 1, range[1], best(top + 1, range[1]) });
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	private int lowerBound(String prefix) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (titleAt(middle).compareTo(prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int upperBound(String prefix, int from) {
+		int low = from;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (titleAt(middle).startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private String titleAt(int sortedIndex) {
+		return titles.apply(sortedPositions[sortedIndex]);
+	}
+
+	/**
+	 * Index of the most liked entry in [from, to) of the sorted array
+	 */
+	private int best(int from, int to) {
+		int result = from;
+		for (int low = from + size, high = to + size; low < high; low >>= 1, high >>= 1) {
+			if ((low & 1) == 1) {
+				result = better(result, tree[low++]);
+			}
+			if ((high & 1) == 1) {
+				result = better(result, tree[--high]);
+			}
+		}
+		return result;
+	}
+
+	private int better(int left, int right) {
+		if (likes[left] != likes[right]) {
+			return likes[left] > likes[right] ? left : right;
+		}
+		return Math.min(left, right);
+	}
+}
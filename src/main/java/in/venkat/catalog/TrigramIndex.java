@@ -0,0 +1,182 @@
+package in.venkat.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index from every three character sequence of a lowercased title to
+ * the sorted positions of the titles containing it. A substring query
+ * intersects the posting lists of its own trigrams and verifies only the
+ * remaining candidates against the catalog's own names, no lowercased copy of
+ * the titles is kept. The posting lists are packed into one int array, with
+ * the sorted trigrams and the offset of each list in primitive arrays beside
+ * it.
+ */
+class TrigramIndex {
+	private static final int[] NONE = new int[0];
+
+	private final IntFunction<String> names;
+	private final int size;
+	private final long[] trigrams;
+	private final int[] offsets;
+	private final int[] positions;
+
+	/**
+	 * @param names the title at each catalog position
+	 * @param size  the number of titles
+	 */
+	TrigramIndex(IntFunction<String> names, int size) {
+		this.names = names;
+		this.size = size;
+		Map<Long, Integer> counts = new HashMap<>();
+		for (int position = 0; position < size; position++) {
+			for (long trigram : trigramsOf(lowerName(position))) {
+				counts.merge(trigram, 1, Integer::sum);
+			}
+		}
+		trigrams = new long[counts.size()];
+		int index = 0;
+		for (Long trigram : counts.keySet()) {
+			trigrams[index++] = trigram;
+		}
+		Arrays.sort(trigrams);
+		offsets = new int[trigrams.length + 1];
+		for (int i = 0; i < trigrams.length; i++) {
+			offsets[i + 1] = offsets[i] + counts.get(trigrams[i]);
+		}
+		positions = new int[offsets[trigrams.length]];
+		int[] next = Arrays.copyOf(offsets, trigrams.length);
+		for (int position = 0; position < size; position++) {
+			for (long trigram : trigramsOf(lowerName(position))) {
+				positions[next[Arrays.binarySearch(trigrams, trigram)]++] = position;
+			}
+		}
+	}
+
+	/**
+	 * This method gives the positions, in ascending order, of the titles that
+	 * contain the query ignoring case
+	 *
+	 * @param query
+	 * @return
+	 */
+	int[] search(String query) {
+		String lowerQuery = query.toLowerCase(Locale.ROOT);
+		if (lowerQuery.length() < 3) {
+			return scan(lowerQuery);
+		}
+		long[] queryTrigrams = trigramsOf(lowerQuery);
+		int[] lists = new int[queryTrigrams.length];
+		for (int i = 0; i < queryTrigrams.length; i++) {
+			lists[i] = Arrays.binarySearch(trigrams, queryTrigrams[i]);
+			if (lists[i] < 0) {
+				return NONE;
+			}
+		}
+		int shortest = 0;
+		for (int i = 1; i < lists.length; i++) {
+			if (length(lists[i]) < length(lists[shortest])) {
+				shortest = i;
+			}
+		}
+		int[] candidates = Arrays.copyOfRange(positions, offsets[lists[shortest]], offsets[lists[shortest] + 1]);
+		int count = candidates.length;
+		for (int i = 0; i < lists.length && count > 0; i++) {
+			if (i != shortest) {
+				count = intersect(candidates, count, offsets[lists[i]], offsets[lists[i] + 1]);
+			}
+		}
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			if (containsIgnoreCase(names.apply(candidates[i]), lowerQuery)) {
+				candidates[hits++] = candidates[i];
+			}
+		}
+		return Arrays.copyOf(candidates, hits);
+	}
+
+	/**
+	 * Queries shorter than a trigram check every title
+	 */
+	private int[] scan(String lowerQuery) {
+		int[] hits = new int[16];
+		int count = 0;
+		for (int position = 0; position < size; position++) {
+			if (containsIgnoreCase(names.apply(position), lowerQuery)) {
+				if (count == hits.length) {
+					hits = Arrays.copyOf(hits, count * 2);
+				}
+				hits[count++] = position;
+			}
+		}
+		return Arrays.copyOf(hits, count);
+	}
+
+	private int length(int list) {
+		return offsets[list + 1] - offsets[list];
+	}
+
+	/**
+	 * Keeps in the first count candidates only those also in positions[from, to),
+	 * and gives how many are left
+	 */
+	private int intersect(int[] candidates, int count, int from, int to) {
+		int i = 0;
+		int j = from;
+		int kept = 0;
+		while (i < count && j < to) {
+			if (candidates[i] < positions[j]) {
+				i++;
+			} else if (candidates[i] > positions[j]) {
+				j++;
+			} else {
+				candidates[kept++] = candidates[i];
+				i++;
+				j++;
+			}
+		}
+		return kept;
+	}
+
+	private String lowerName(int position) {
+		String name = names.apply(position);
+		return name == null ? "" : name.toLowerCase(Locale.ROOT);
+	}
+
+	private static boolean containsIgnoreCase(String name, String lowerQuery) {
+		if (name == null) {
+			return lowerQuery.isEmpty();
+		}
+		for (int start = 0; start + lowerQuery.length() <= name.length(); start++) {
+			if (name.regionMatches(true, start, lowerQuery, 0, lowerQuery.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The distinct trigrams of the text in ascending order, each packed into a
+	 * long
+	 */
+	private static long[] trigramsOf(String text) {
+		if (text.length() < 3) {
+			return new long[0];
+		}
+		long[] trigrams = new long[text.length() - 2];
+		for (int i = 0; i < trigrams.length; i++) {
+			trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+		}
+		Arrays.sort(trigrams);
+		int distinct = 1;
+		for (int i = 1; i < trigrams.length; i++) {
+			if (trigrams[i] != trigrams[distinct - 1]) {
+				trigrams[distinct++] = trigrams[i];
+			}
+		}
+		return Arrays.copyOf(trigrams, distinct);
+	}
+}
@@ -0,0 +1,59 @@
+package in.venkat.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Column label to position lookup for one result set shape. Row mappers are
+ * built from it once per SQL text and cached, so reading a row is a plain
+ * positional get for every column.
+ */
+class ColumnPositions {
+	private static final Map<String, RowMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> positions = new HashMap<>();
+
+	private ColumnPositions(ResultSetMetaData metaData) throws SQLException {
+		for (int column = 1; column <= metaData.getColumnCount(); column++) {
+			positions.put(metaData.getColumnLabel(column).toLowerCase(), column);
+		}
+	}
+
+	/**
+	 * This method gives the position of the column, or 0 when the query does not
+	 * select it
+	 *
+	 * @param label
+	 * @return
+	 */
+	int of(String label) {
+		Integer position = positions.get(label.toLowerCase());
+		return position == null ? 0 : position;
+	}
+
+	/**
+	 * This method returns the mapper for the shape of the given query, building it
+	 * from the result set metadata the first time the query runs
+	 *
+	 * @param sql
+	 * @param rs
+	 * @param factory
+	 * @return
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> RowMapper<T> mapperFor(String sql, ResultSet rs, Function<ColumnPositions, RowMapper<T>> factory)
+			throws SQLException {
+		RowMapper<T> mapper = (RowMapper<T>) MAPPERS.get(sql);
+		if (mapper == null) {
+			mapper = factory.apply(new ColumnPositions(rs.getMetaData()));
+			MAPPERS.put(sql, mapper);
+		}
+		return mapper;
+	}
+}
@@ -31,7 +31,7 @@ public class PlansDao {
 		PreparedStatement preparedSt = null;
 		ResultSet rs = null;
 		try {
-			connection = ConnectionUtil.getConnection();
+			connection = ConnectionUtil.getReadConnection();
 
 			String sql = "select plan_id,plans,validity,live_shows,multiplex_Indian,dubbed_original,advertisement,screens,video_quality,audio_quality from prime_plans";
 			preparedSt = connection.prepareStatement(sql);
@@ -78,7 +78,7 @@ public class PlansDao {
 		ResultSet rs = null;
 		int count = 0;
 		try {
-			connection = ConnectionUtil.getConnection();
+			connection = ConnectionUtil.getReadConnection();
 
 			String sql = "select count(*) from prime_plans";
 
@@ -95,4 +95,4 @@ public class PlansDao {
 
 		return count;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
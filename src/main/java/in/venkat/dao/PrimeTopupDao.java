@@ -4,7 +4,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -77,13 +76,9 @@ public class PrimeTopupDao {
 			String sql = "select topup_id,user_id,plan,expires_on,screen from prime_topup";
 			pst = connection.prepareStatement(sql);
 			rs = pst.executeQuery();
+			RowMapper<PrimeTopup> mapper = ColumnPositions.mapperFor(sql, rs, PrimeTopupRowMapper::new);
 			while (rs.next()) {
-				int topupId = rs.getInt("topup_id");
-				String userId = rs.getString("user_id");
-				int plan = rs.getInt("plan");
-				LocalDate expiryDate = LocalDate.parse(rs.getString("expires_on"));
-				int screen = rs.getInt("screen");
-				validTopupDate.add(new PrimeTopup(topupId, userId, plan, expiryDate, screen));
+				validTopupDate.add(mapper.mapRow(rs));
 			}
 
 		} catch (SQLException e) {
@@ -0,0 +1,32 @@
+package in.venkat.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import in.venkat.model.PrimeTopup;
+
+/**
+ * Maps rows of prime_topup, the expiry date is read as a typed value
+ */
+class PrimeTopupRowMapper implements RowMapper<PrimeTopup> {
+	private final int topupId;
+	private final int userId;
+	private final int plan;
+	private final int expiresOn;
+	private final int screen;
+
+	PrimeTopupRowMapper(ColumnPositions columns) {
+		topupId = columns.of("topup_id");
+		userId = columns.of("user_id");
+		plan = columns.of("plan");
+		expiresOn = columns.of("expires_on");
+		screen = columns.of("screen");
+	}
+
+	@Override
+	public PrimeTopup mapRow(ResultSet rs) throws SQLException {
+		return new PrimeTopup(rs.getInt(topupId), rs.getString(userId), rs.getInt(plan),
+				rs.getObject(expiresOn, LocalDate.class), rs.getInt(screen));
+	}
+}
@@ -0,0 +1,15 @@
+package in.venkat.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object. Implementations resolve
+ * their column positions once, see {@link ColumnPositions}.
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+	T mapRow(ResultSet rs) throws SQLException;
+}
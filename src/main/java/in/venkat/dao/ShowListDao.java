@@ -4,9 +4,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import in.venkat.exceptions.DbException;
 import in.venkat.exceptions.InvalidDetailsException;
@@ -23,19 +26,19 @@ public class ShowListDao {
 	}
 
 	private static final String DB_ERROR_STATUS = "unable to connect to data base";
-	private static final String USER_ID = "user_id";
-	private static final String MOVIE_ID = "movie_id";
-	private static final String YEAR = "year";
-	private static final String ID = "id";
-	private static final String GENRE = "genre";
-	private static final String NAME = "name";
-	private static final String LANGUAGE = "language";
-	private static final String CATEGORY = "category";
-	private static final String MEMBERSHIP = "membership";
-	private static final String GRADE = "grade";
-	private static final String STATUS = "status";
-	private static final String DOWNLOAD_ON = "download_on";
-	private static final String EXPIRE_ON = "expire_on";
+
+	/**
+	 * Channel on which every change to the shows table is announced, with a
+	 * payload of the form operation:id:node
+	 */
+	public static final String CATALOG_CHANNEL = "catalog_changes";
+	public static final String CHANGE_UPSERT = "upsert";
+	public static final String CHANGE_REMOVE = "remove";
+	/**
+	 * Identifies this process in the notifications it sends, so that it can
+	 * skip its own changes, which it has already applied
+	 */
+	public static final String NODE_ID = UUID.randomUUID().toString();
 
 	/**
 	 * This method is used to get the details from the table shows
@@ -47,29 +50,175 @@ public class ShowListDao {
 	 */
 	public static List<Show> getShowDetails() throws DbException {
 		List<Show> movieList = new ArrayList<>();
+		forEachShow(movieList::add);
+		return movieList;
+	}
+
+	/**
+	 * This method streams the shows table to the handler row by row. The rows
+	 * are read through a server side cursor in batches of the configured fetch
+	 * size, so the whole table is never held in memory at once.
+	 * 
+	 * @param handler
+	 * @throws DbException
+	 */
+	public static void forEachShow(Consumer<Show> handler) throws DbException {
+		forEachShow(handler, false);
+	}
+
+	/**
+	 * This method streams the shows table to the handler, from the primary when
+	 * the caller must see every committed change, otherwise from a replica
+	 * 
+	 * @param handler
+	 * @param fromPrimary
+	 * @throws DbException
+	 */
+	public static void forEachShow(Consumer<Show> handler, boolean fromPrimary) throws DbException {
 		Connection connection = null;
 		PreparedStatement preparedSt = null;
 		ResultSet rs = null;
 		try {
-			connection = ConnectionUtil.getConnection();
+			connection = fromPrimary ? ConnectionUtil.getConnection() : ConnectionUtil.getReadConnection();
+			/**
+			 * The postgres driver only uses a cursor outside autocommit, the pool
+			 * restores autocommit when the connection is returned
+			 */
+			if (connection.getAutoCommit()) {
+				connection.setAutoCommit(false);
+			}
 
-			String sql = "select id,genre,name,year,language,category,membership,grade,status from shows ";
+			String sql = "select id,genre,name,year,language,category,membership,grade,status,likes from shows ";
 			preparedSt = connection.prepareStatement(sql);
+			preparedSt.setFetchSize(ConnectionUtil.getFetchSize());
 			rs = preparedSt.executeQuery();
 
+			RowMapper<Show> mapper = ColumnPositions.mapperFor(sql, rs, ShowRowMapper::new);
 			while (rs.next()) {
-				int movieId = rs.getInt(ID);
-				String movieGenre = rs.getString(GENRE);
-				String movieName = rs.getString(NAME);
-				int movieYear = rs.getInt(YEAR);
-				String movieLanguage = rs.getString(LANGUAGE);
-				String movieCategory = rs.getString(CATEGORY);
-				String membership = rs.getString(MEMBERSHIP);
-				String movieGrade = rs.getString(GRADE);
-				String movieStatus = rs.getString(STATUS);
-				movieList.add(new Show(movieId, movieGenre, movieName, movieYear, movieLanguage, movieCategory,
-						membership, movieGrade, movieStatus));
+				handler.accept(mapper.mapRow(rs));
+			}
+
+		} catch (SQLException e) {
+			Logger.exception(e);
+			throw new DbException(e, DB_ERROR_STATUS);
+
+		} finally {
+			ConnectionUtil.close(rs, preparedSt, connection);
+		}
+	}
+
+	/**
+	 * This method is used to fetch the shows with the given ids in one round
+	 * trip. Ids that do not exist are simply absent from the map.
+	 * 
+	 * @param movieIds
+	 * @return
+	 * @throws DbException
+	 */
+	public static Map<Integer, Show> getShowsByIds(int[] movieIds) throws DbException {
+		return getShowsByIds(movieIds, false);
+	}
+
+	/**
+	 * This method is used to fetch the shows with the given ids in one round
+	 * trip, from the primary when the caller must see a change that was just
+	 * committed, otherwise from a replica
+	 * 
+	 * @param movieIds
+	 * @param fromPrimary
+	 * @return
+	 * @throws DbException
+	 */
+	public static Map<Integer, Show> getShowsByIds(int[] movieIds, boolean fromPrimary) throws DbException {
+		Map<Integer, Show> shows = new HashMap<>();
+		if (movieIds.length == 0) {
+			return shows;
+		}
+		Connection connection = null;
+		PreparedStatement preparedSt = null;
+		ResultSet rs = null;
+		try {
+			connection = fromPrimary ? ConnectionUtil.getConnection() : ConnectionUtil.getReadConnection();
+
+			String sql = "select id,genre,name,year,language,category,membership,grade,status,likes from shows where id = ANY(?)";
+			Integer[] ids = new Integer[movieIds.length];
+			for (int i = 0; i < movieIds.length; i++) {
+				ids[i] = movieIds[i];
+			}
+			preparedSt = connection.prepareStatement(sql);
+			preparedSt.setArray(1, connection.createArrayOf("integer", ids));
+			rs = preparedSt.executeQuery();
+
+			RowMapper<Show> mapper = ColumnPositions.mapperFor(sql, rs, ShowRowMapper::new);
+			while (rs.next()) {
+				Show show = mapper.mapRow(rs);
+				shows.put(show.getId(), show);
+			}
+
+		} catch (SQLException e) {
+			Logger.exception(e);
+			throw new DbException(e, DB_ERROR_STATUS);
+
+		} finally {
+			ConnectionUtil.close(rs, preparedSt, connection);
+		}
+		return shows;
+	}
+
+	/**
+	 * This method is used to get one page of shows in a category ordered by id,
+	 * starting after the given id
+	 * 
+	 * @param category
+	 * @param afterId
+	 * @param limit
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<Show> getShowsPageByCategory(String category, int afterId, int limit) throws DbException {
+		return findShows("lower(category) = lower(?) and id > ? order by id limit ?", category, afterId, limit);
+	}
+
+	/**
+	 * This method is used to get one page of shows by genre and language ordered
+	 * by id, starting after the given id
+	 * 
+	 * @param genre
+	 * @param language
+	 * @param afterId
+	 * @param limit
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<Show> getShowsPageByGenreAndLanguage(String genre, String language, int afterId, int limit)
+			throws DbException {
+		return findShows("lower(genre) = lower(?) and lower(language) = lower(?) and id > ? order by id limit ?", genre,
+				language, afterId, limit);
+	}
+
+	/**
+	 * Runs the shows select with the given where clause so that only matching
+	 * rows leave the database
+	 */
+	private static List<Show> findShows(String condition, Object... params) throws DbException {
+		List<Show> movieList = new ArrayList<>();
+		Connection connection = null;
+		PreparedStatement preparedSt = null;
+		ResultSet rs = null;
+		try {
+			connection = ConnectionUtil.getReadConnection();
 
+			String sql = "select id,genre,name,year,language,category,membership,grade,status,likes from shows where "
+					+ condition;
+			preparedSt = connection.prepareStatement(sql);
+			for (int i = 0; i < params.length; i++) {
+				preparedSt.setObject(i + 1, params[i]);
+			}
+			rs = preparedSt.executeQuery();
+
+			RowMapper<Show> mapper = ColumnPositions.mapperFor(sql, rs, ShowRowMapper::new);
+			while (rs.next()) {
+				movieList.add(mapper.mapRow(rs));
 			}
 
 		} catch (SQLException e) {
@@ -83,18 +232,23 @@ public class ShowListDao {
 	}
 
 	/**
-	 * This method is used to add movies
+	 * This method is used to add movies. A show with the same name, year and
+	 * language is rejected by the unique index on the table instead of being
+	 * looked up first.
 	 * 
 	 * @param show
+	 * @return the id of the new show, or 0 when the show already exists
 	 * @throws DbException
 	 */
-	public static void addMovies(Show show) throws DbException {
+	public static int addMovies(Show show) throws DbException {
 		Connection connection = null;
 		PreparedStatement pst = null;
-
+		ResultSet rs = null;
+		int movieId = 0;
 		try {
 			connection = ConnectionUtil.getConnection();
-			String sql = "INSERT INTO shows (genre,name,year,language,category,membership,grade,status,likes) values (?,?,?,?,?,?,?,?,?)";
+			String sql = "INSERT INTO shows (genre,name,year,language,category,membership,grade,status,likes) values (?,?,?,?,?,?,?,?,?) "
+					+ "ON CONFLICT (name, year, lower(language)) DO NOTHING RETURNING id";
 			pst = connection.prepareStatement(sql);
 			pst.setString(1, show.getMovieGenre());
 			pst.setString(2, show.getMovieName());
@@ -106,14 +260,18 @@ public class ShowListDao {
 			pst.setString(8, show.getStatus());
 			pst.setInt(9, show.getLikes());
 
-			pst.executeUpdate();
+			rs = pst.executeQuery();
+			if (rs.next()) {
+				movieId = rs.getInt(1);
+				notifyCatalogChange(connection, CHANGE_UPSERT, movieId);
+			}
 		} catch (SQLException e) {
 			Logger.exception(e);
 			throw new DbException(e, DB_ERROR_STATUS);
 		} finally {
-			ConnectionUtil.close(pst, connection);
+			ConnectionUtil.close(rs, pst, connection);
 		}
-
+		return movieId;
 	}
 
 	/**
@@ -133,7 +291,9 @@ public class ShowListDao {
 			pst = connection.prepareStatement(sql);
 			pst.setInt(1, movieId);
 
-			pst.executeUpdate();
+			if (pst.executeUpdate() > 0) {
+				notifyCatalogChange(connection, CHANGE_REMOVE, movieId);
+			}
 
 		} catch (SQLException e) {
 			Logger.exception(e);
@@ -162,7 +322,9 @@ public class ShowListDao {
 			pst.setString(1, membership);
 			pst.setInt(2, movieId);
 
-			pst.executeUpdate();
+			if (pst.executeUpdate() > 0) {
+				notifyCatalogChange(connection, CHANGE_UPSERT, movieId);
+			}
 
 		} catch (SQLException e) {
 			Logger.exception(e);
@@ -173,6 +335,30 @@ public class ShowListDao {
 
 	}
 
+	/**
+	 * This method announces a change to the shows table to every node listening
+	 * on the catalog channel. Inside a transaction the notification is only
+	 * delivered on commit.
+	 * 
+	 * @param connection
+	 * @param operation
+	 * @param movieId
+	 * @throws SQLException
+	 */
+	private static void notifyCatalogChange(Connection connection, String operation, int movieId)
+			throws SQLException {
+		PreparedStatement pst = null;
+		ResultSet rs = null;
+		try {
+			pst = connection.prepareStatement("select pg_notify(?, ?)");
+			pst.setString(1, CATALOG_CHANNEL);
+			pst.setString(2, operation + ":" + movieId + ":" + NODE_ID);
+			rs = pst.executeQuery();
+		} finally {
+			ConnectionUtil.close(rs, pst, null);
+		}
+	}
+
 	/**
 	 * This method is used to get favorite movie list
 	 * 
@@ -193,20 +379,9 @@ public class ShowListDao {
 			preparedSt.setString(1, userId);
 			rs = preparedSt.executeQuery();
 
+			RowMapper<Show> mapper = ColumnPositions.mapperFor(sql, rs, ShowRowMapper::new);
 			while (rs.next()) {
-				String id = rs.getString(USER_ID);
-				int movieId = rs.getInt(MOVIE_ID);
-				String movieGenre = rs.getString(GENRE);
-				String movieName = rs.getString(NAME);
-				int movieYear = rs.getInt(YEAR);
-				String movieLanguage = rs.getString(LANGUAGE);
-				String movieCategory = rs.getString(CATEGORY);
-				String membership = rs.getString(MEMBERSHIP);
-				String movieGrade = rs.getString(GRADE);
-				String movieStatus = rs.getString(STATUS);
-				favorite.add(new Show(id, movieId, movieGenre, movieName, movieYear, movieLanguage, movieCategory,
-						membership, movieGrade, movieStatus));
-
+				favorite.add(mapper.mapRow(rs));
 			}
 
 		} catch (SQLException e) {
@@ -255,37 +430,25 @@ public class ShowListDao {
 	}
 
 	/**
-	 * This method is used to get the trending movies
+	 * This method is used to get the likes of every movie that has at least one.
+	 * It reads from the primary, so that likes flushed a moment ago are counted.
 	 * 
-	 * @return
+	 * @return likes by movie id
 	 * @throws DbException
 	 */
-	public static List<Show> getTrendingMovies() throws DbException {
-		List<Show> trending = new ArrayList<>();
+	public static Map<Integer, Integer> getLikedMovies() throws DbException {
+		Map<Integer, Integer> likes = new HashMap<>();
 		Connection connection = null;
-		PreparedStatement pst = null;
+		PreparedStatement preparedSt = null;
 		ResultSet rs = null;
-
 		try {
 			connection = ConnectionUtil.getConnection();
-			String sql = "SELECT id,genre,name,year,language,category,membership,grade,status,likes FROM shows ORDER BY likes DESC";
-			pst = connection.prepareStatement(sql);
-			rs = pst.executeQuery();
-			while (rs.next()) {
-				int movieId = rs.getInt(ID);
-				String genre = rs.getString(GENRE);
-				String name = rs.getString(NAME);
-				int year = rs.getInt(YEAR);
-				String language = rs.getString(LANGUAGE);
-				String category = rs.getString(CATEGORY);
-				String membership = rs.getString(MEMBERSHIP);
-				String grade = rs.getString(GRADE);
-				String status = rs.getString(STATUS);
-				int likes = rs.getInt("likes");
-
-				trending.add(
-						new Show(movieId, genre, name, year, language, category, membership, grade, status, likes));
 
+			String sql = "select id,likes from shows where likes > 0";
+			preparedSt = connection.prepareStatement(sql);
+			rs = preparedSt.executeQuery();
+			while (rs.next()) {
+				likes.put(rs.getInt(1), rs.getInt(2));
 			}
 
 		} catch (SQLException e) {
@@ -293,26 +456,37 @@ public class ShowListDao {
 			throw new DbException(e, DB_ERROR_STATUS);
 
 		} finally {
-			ConnectionUtil.close(rs, pst, connection);
+			ConnectionUtil.close(rs, preparedSt, connection);
 		}
-		return trending;
-
+		return likes;
 	}
 
 	/**
-	 * This method is used to update the like when user add a movie to favorites
+	 * This method adds many like counts in one statement, the ids and counts are
+	 * sent as two arrays and joined to the table with unnest
 	 * 
-	 * @param movieId
+	 * @param movieIds
+	 * @param likes    the likes to add to the movie at the same index
 	 * @throws DbException
 	 */
-	public static void updateLikes(int movieId) throws DbException {
+	public static void addLikes(int[] movieIds, int[] likes) throws DbException {
+		if (movieIds.length == 0) {
+			return;
+		}
 		Connection connection = null;
 		PreparedStatement pst = null;
 		try {
 			connection = ConnectionUtil.getConnection();
-			String sql = "update shows set likes = likes+1 where id = ?";
+			String sql = "update shows set likes = shows.likes + d.likes from unnest(?, ?) as d(id, likes) where shows.id = d.id";
+			Integer[] ids = new Integer[movieIds.length];
+			Integer[] counts = new Integer[likes.length];
+			for (int i = 0; i < movieIds.length; i++) {
+				ids[i] = movieIds[i];
+				counts[i] = likes[i];
+			}
 			pst = connection.prepareStatement(sql);
-			pst.setInt(1, movieId);
+			pst.setArray(1, connection.createArrayOf("integer", ids));
+			pst.setArray(2, connection.createArrayOf("integer", counts));
 			pst.executeUpdate();
 		} catch (SQLException e) {
 			Logger.exception(e);
@@ -375,21 +549,9 @@ public class ShowListDao {
 			preparedSt = connection.prepareStatement(sql);
 			rs = preparedSt.executeQuery();
 
+			RowMapper<Show> mapper = ColumnPositions.mapperFor(sql, rs, ShowRowMapper::new);
 			while (rs.next()) {
-				String id = rs.getString(USER_ID);
-				int movieId = rs.getInt(MOVIE_ID);
-				String movieGenre = rs.getString(GENRE);
-				String movieName = rs.getString(NAME);
-				int movieYear = rs.getInt(YEAR);
-				String movieLanguage = rs.getString(LANGUAGE);
-				String movieCategory = rs.getString(CATEGORY);
-				String membership = rs.getString(MEMBERSHIP);
-				String movieGrade = rs.getString(GRADE);
-				String movieStatus = rs.getString(STATUS);
-				LocalDate downloadDate = LocalDate.parse(rs.getString(DOWNLOAD_ON));
-				LocalDate expireDate = LocalDate.parse(rs.getString(EXPIRE_ON));
-				download.add(new Show(id, movieId, movieGenre, movieName, movieYear, movieLanguage, movieCategory,
-						membership, movieGrade, movieStatus, downloadDate, expireDate));
+				download.add(mapper.mapRow(rs));
 			}
 
 		} catch (SQLException e) {
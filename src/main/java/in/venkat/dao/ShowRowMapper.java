@@ -0,0 +1,64 @@
+package in.venkat.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import in.venkat.model.Show;
+
+/**
+ * Maps rows of shows, favorites and download. Columns the query does not
+ * select are left at their defaults, dates are read as typed values.
+ */
+class ShowRowMapper implements RowMapper<Show> {
+	private final int userId;
+	private final int id;
+	private final int genre;
+	private final int name;
+	private final int year;
+	private final int language;
+	private final int category;
+	private final int membership;
+	private final int grade;
+	private final int status;
+	private final int likes;
+	private final int downloadOn;
+	private final int expireOn;
+
+	ShowRowMapper(ColumnPositions columns) {
+		userId = columns.of("user_id");
+		int movieId = columns.of("movie_id");
+		id = movieId != 0 ? movieId : columns.of("id");
+		genre = columns.of("genre");
+		name = columns.of("name");
+		year = columns.of("year");
+		language = columns.of("language");
+		category = columns.of("category");
+		membership = columns.of("membership");
+		grade = columns.of("grade");
+		status = columns.of("status");
+		likes = columns.of("likes");
+		downloadOn = columns.of("download_on");
+		expireOn = columns.of("expire_on");
+	}
+
+	@Override
+	public Show mapRow(ResultSet rs) throws SQLException {
+		Show show = new Show(rs.getInt(id), rs.getString(genre), rs.getString(name), rs.getInt(year),
+				rs.getString(language), rs.getString(category), rs.getString(membership), rs.getString(grade),
+				rs.getString(status));
+		if (userId != 0) {
+			show.setUserId(rs.getString(userId));
+		}
+		if (likes != 0) {
+			show.setLikes(rs.getInt(likes));
+		}
+		if (downloadOn != 0) {
+			show.setDownloadDate(rs.getObject(downloadOn, LocalDate.class));
+		}
+		if (expireOn != 0) {
+			show.setExpireDate(rs.getObject(expireOn, LocalDate.class));
+		}
+		return show;
+	}
+}
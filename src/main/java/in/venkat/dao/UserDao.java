@@ -57,7 +57,9 @@ public class UserDao {
 	}
 
 	/**
-	 * This method is used to get the userId and Password from the users table
+	 * This method is used to get the userId and Password from the users table.
+	 * Credentials are read from the primary, so a user can log in right after
+	 * registering.
 	 * 
 	 * @return
 	 * @throws DbException
@@ -75,11 +77,9 @@ public class UserDao {
 			pst = connection.prepareStatement(sql);
 			rs = pst.executeQuery();
 
+			RowMapper<User> mapper = ColumnPositions.mapperFor(sql, rs, UserRowMapper::new);
 			while (rs.next()) {
-				String userId = rs.getString("user_id");
-				String userPassword = rs.getString("password");
-				userLogin.add(new User(userId, userPassword));
-
+				userLogin.add(mapper.mapRow(rs));
 			}
 		} catch (SQLException e) {
 			Logger.exception(e);
@@ -93,7 +93,9 @@ public class UserDao {
 	}
 
 	/**
-	 * This method is used to get the Phone number and password from the users table
+	 * This method is used to get the Phone number and password from the users table.
+	 * Credentials are read from the primary, so a user can log in right after
+	 * registering.
 	 * 
 	 * @return
 	 * @throws DbException
@@ -110,11 +112,9 @@ public class UserDao {
 			pst = connection.prepareStatement(sql);
 			rs = pst.executeQuery();
 
+			RowMapper<User> mapper = ColumnPositions.mapperFor(sql, rs, UserRowMapper::new);
 			while (rs.next()) {
-				long phoneNumber = rs.getLong("phone_number");
-				String userPassword = rs.getString("password");
-				userLogin.add(new User(phoneNumber, userPassword));
-
+				userLogin.add(mapper.mapRow(rs));
 			}
 		} catch (SQLException e) {
 			Logger.exception(e);
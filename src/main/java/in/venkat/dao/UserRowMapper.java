@@ -0,0 +1,30 @@
+package in.venkat.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import in.venkat.model.User;
+
+/**
+ * Maps the login lookups on users, selected either by user id or by phone
+ * number together with the password
+ */
+class UserRowMapper implements RowMapper<User> {
+	private final int userId;
+	private final int phoneNumber;
+	private final int password;
+
+	UserRowMapper(ColumnPositions columns) {
+		userId = columns.of("user_id");
+		phoneNumber = columns.of("phone_number");
+		password = columns.of("password");
+	}
+
+	@Override
+	public User mapRow(ResultSet rs) throws SQLException {
+		if (userId != 0) {
+			return new User(rs.getString(userId), rs.getString(password));
+		}
+		return new User(rs.getLong(phoneNumber), rs.getString(password));
+	}
+}
@@ -0,0 +1,43 @@
+package in.venkat.model;
+
+import java.util.List;
+
+public class ShowPage {
+	private List<Show> shows;
+	private String nextCursor;
+
+	public List<Show> getShows() {
+		return shows;
+	}
+
+	public void setShows(List<Show> shows) {
+		this.shows = shows;
+	}
+
+	/**
+	 * The cursor to pass back for the next page, null on the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	public ShowPage(List<Show> shows, String nextCursor) {
+		super();
+		this.shows = shows;
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "ShowPage [shows=" + shows + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
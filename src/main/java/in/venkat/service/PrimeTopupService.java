@@ -14,6 +14,7 @@ import in.venkat.exceptions.LoginLimitReachedException;
 import in.venkat.exceptions.PlanNotExpiredException;
 import in.venkat.model.Plans;
 import in.venkat.model.PrimeTopup;
+import in.venkat.util.TransactionManager;
 import in.venkat.validator.TopupValidation;
 import in.venkat.validator.ValidateUserDetails;
 
@@ -131,18 +132,24 @@ public class PrimeTopupService {
 	 */
 	public static boolean loginService(String userId) throws DbException, LoginLimitReachedException {
 		boolean valid = false;
-		int id = getValidId(userId);
-		int count = 0;
-		double planCost = getPlanById(id);
-		count = getScreenCount(id);
-		if (planCost == 399 && count == 1 && id > 0) {
-			count--;
-			PrimeTopupDao.updateScreenStatus(id, count);
-		} else if (planCost == 699 && count > 0 && count <= 2 && id > 0) {
-			count--;
-			PrimeTopupDao.updateScreenStatus(id, count);
-		} else {
-			throw new LoginLimitReachedException("Your id has reached maximum no of screens");
+		TransactionManager.begin();
+		try {
+			int id = getValidId(userId);
+			int count = 0;
+			double planCost = getPlanById(id);
+			count = getScreenCount(id);
+			if (planCost == 399 && count == 1 && id > 0) {
+				count--;
+				PrimeTopupDao.updateScreenStatus(id, count);
+			} else if (planCost == 699 && count > 0 && count <= 2 && id > 0) {
+				count--;
+				PrimeTopupDao.updateScreenStatus(id, count);
+			} else {
+				throw new LoginLimitReachedException("Your id has reached maximum no of screens");
+			}
+			TransactionManager.commit();
+		} finally {
+			TransactionManager.end();
 		}
 
 		return valid;
@@ -159,18 +166,24 @@ public class PrimeTopupService {
 	 */
 	public static boolean logoutService(String userId) throws DbException, InvalidPlanException {
 		boolean valid = false;
-		int id = getValidId(userId);
-		int count = 0;
-		double planCost = getPlanById(id);
-		count = getScreenCount(id);
-		if (planCost == 399 && count == 0 && id > 0) {
-			count++;
-			PrimeTopupDao.updateScreenStatus(id, count);
-		} else if (planCost == 699 && count >= 0 && count < 2 && id > 0) {
-			count++;
-			PrimeTopupDao.updateScreenStatus(id, count);
-		} else {
-			throw new InvalidPlanException("there is no active plan recharge your account");
+		TransactionManager.begin();
+		try {
+			int id = getValidId(userId);
+			int count = 0;
+			double planCost = getPlanById(id);
+			count = getScreenCount(id);
+			if (planCost == 399 && count == 0 && id > 0) {
+				count++;
+				PrimeTopupDao.updateScreenStatus(id, count);
+			} else if (planCost == 699 && count >= 0 && count < 2 && id > 0) {
+				count++;
+				PrimeTopupDao.updateScreenStatus(id, count);
+			} else {
+				throw new InvalidPlanException("there is no active plan recharge your account");
+			}
+			TransactionManager.commit();
+		} finally {
+			TransactionManager.end();
 		}
 		return valid;
 	}
@@ -2,9 +2,15 @@ package in.venkat.service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
+import in.venkat.catalog.CatalogCache;
+import in.venkat.catalog.CatalogSnapshot;
+import in.venkat.catalog.ShowAttribute;
 import in.venkat.dao.ShowListDao;
 import in.venkat.exceptions.DbException;
 import in.venkat.exceptions.EmptyFieldException;
@@ -14,10 +20,19 @@ import in.venkat.exceptions.InvalidNameException;
 import in.venkat.exceptions.InvalidUserIdException;
 import in.venkat.exceptions.MovieAlreadyExistsException;
 import in.venkat.model.Show;
+import in.venkat.model.ShowPage;
+import in.venkat.trending.EngagementTracker;
+import in.venkat.trending.EngagementTracker.Engagement;
+import in.venkat.trending.LikeCounter;
+import in.venkat.trending.RecencyTracker;
+import in.venkat.trending.TopK;
+import in.venkat.trending.TrendingTracker;
+import in.venkat.util.ConfigUtil;
 import in.venkat.util.IdValidationUtil;
 import in.venkat.util.Logger;
 import in.venkat.util.NameValidationUtil;
 import in.venkat.util.ShowDetailsValidationUtil;
+import in.venkat.util.TransactionManager;
 import in.venkat.validator.DownloadValidator;
 import in.venkat.validator.ValidateSearchDetails;
 
@@ -28,6 +43,17 @@ public class ShowService {
 		 */
 	}
 
+	private static final int MAX_PAGE_SIZE = 100;
+	private static final String INVALID_CURSOR = "invalid page cursor";
+	private static final int MAX_EDITS = 3;
+	private static final int FUZZY_RESULT_LIMIT = 20;
+	/**
+	 * A search counts as engagement with its results only when it finds at most
+	 * engagement.search-signal-limit titles, a broader search says little about
+	 * any one of them
+	 */
+	private static final int SEARCH_SIGNAL_LIMIT = ConfigUtil.getInt("engagement.search-signal-limit", 20);
+
 	/**
 	 * This method is used to search movies by giving genre and language
 	 * 
@@ -52,15 +78,10 @@ public class ShowService {
 	}
 
 	public static List<Show> searchMoviesByLanguageAndGenre(String filmGenre, String filmLanguage) throws DbException {
-		List<Show> primeMovieList;
-		List<Show> filteredMovieList = new ArrayList<>();
-		primeMovieList = ShowListDao.getShowDetails();
-		for (Show show : primeMovieList) {
-			if (show.getMovieGenre().equalsIgnoreCase(filmGenre.trim())
-					&& show.getMovieLanguage().equalsIgnoreCase(filmLanguage.trim()))
-				filteredMovieList.add(show);
-		}
-		return filteredMovieList;
+		Map<ShowAttribute, String> criteria = new EnumMap<>(ShowAttribute.class);
+		criteria.put(ShowAttribute.GENRE, filmGenre);
+		criteria.put(ShowAttribute.LANGUAGE, filmLanguage);
+		return CatalogCache.get().search(criteria);
 
 	}
 
@@ -78,15 +99,8 @@ public class ShowService {
 	public static List<Show> searchMoviesByMembership(String membership)
 			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
 		ValidateSearchDetails.validateDetails(membership);
-		List<Show> primeMovieList;
-		List<Show> filteredMovieList = new ArrayList<>();
-		primeMovieList = ShowListDao.getShowDetails();
-		for (Show show : primeMovieList) {
-			if (show.getMembership().equalsIgnoreCase(membership.trim())) {
-				filteredMovieList.add(show);
-				Logger.log(show);
-			}
-		}
+		List<Show> filteredMovieList = CatalogCache.get().search(ShowAttribute.MEMBERSHIP, membership);
+		Logger.log(filteredMovieList);
 		return filteredMovieList;
 
 	}
@@ -99,17 +113,10 @@ public class ShowService {
 	 * @throws DbException
 	 */
 	public static List<Show> searchMoviesByYear(int year) throws DbException {
-		List<Show> primeMovieList;
 		List<Show> filteredMovieList = new ArrayList<>();
 		if (year > 1950 && year <= 2021) {
-			primeMovieList = ShowListDao.getShowDetails();
-			for (Show show : primeMovieList) {
-				if (show.getMovieYear() == year) {
-					filteredMovieList.add(show);
-					Logger.log(show);
-				}
-
-			}
+			filteredMovieList = CatalogCache.get().search(ShowAttribute.YEAR, String.valueOf(year));
+			Logger.log(filteredMovieList);
 		}
 		return filteredMovieList;
 	}
@@ -128,17 +135,8 @@ public class ShowService {
 			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
 		ValidateSearchDetails.validateDetails(filmLanguage);
 
-		List<Show> primeMovieList;
-		List<Show> filteredMovieList = new ArrayList<>();
-
-		primeMovieList = ShowListDao.getShowDetails();
-		for (Show show : primeMovieList) {
-			if (show.getMovieLanguage().equalsIgnoreCase(filmLanguage.trim())) {
-				filteredMovieList.add(show);
-				Logger.log(show);
-
-			}
-		}
+		List<Show> filteredMovieList = CatalogCache.get().search(ShowAttribute.LANGUAGE, filmLanguage);
+		Logger.log(filteredMovieList);
 		return filteredMovieList;
 
 	}
@@ -157,18 +155,146 @@ public class ShowService {
 			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
 		ValidateSearchDetails.validateDetails(filmCategory);
 
-		List<Show> primeMovieList;
-		List<Show> filteredMovieList = new ArrayList<>();
+		List<Show> filteredMovieList = CatalogCache.get().search(ShowAttribute.CATEGORY, filmCategory);
+		Logger.log(filteredMovieList);
+
+		return filteredMovieList;
+	}
 
-		primeMovieList = ShowListDao.getShowDetails();
-		for (Show show : primeMovieList) {
-			if (show.getMovieCategory().equalsIgnoreCase(filmCategory.trim())) {
-				filteredMovieList.add(show);
-				Logger.log(show);
+	/**
+	 * This method is used to display one page of movies in a category. Pass a
+	 * null cursor for the first page and the page's next cursor after that.
+	 * 
+	 * Pages are read from the table rather than the catalog snapshot. The
+	 * snapshot keeps its titles in load order, so an id ordered page would have
+	 * to collect and sort every match in the category for each page, while the
+	 * keyset query walks the (category, id) index and costs the same however
+	 * deep the client pages.
+	 * 
+	 * @param filmCategory
+	 * @param pageSize
+	 * @param cursor
+	 * @return
+	 * @throws DbException
+	 * @throws EmptyFieldException
+	 * @throws InvalidNameException
+	 * @throws InvalidDetailsException
+	 */
+	public static ShowPage displayAllMoviesPage(String filmCategory, int pageSize, String cursor)
+			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
+		ValidateSearchDetails.validateDetails(filmCategory);
+		validatePageSize(pageSize);
+		int afterId = parseIdCursor(cursor);
+		List<Show> shows = ShowListDao.getShowsPageByCategory(filmCategory.trim(), afterId, pageSize + 1);
+		return toIdPage(shows, pageSize);
+	}
+
+	/**
+	 * This method is used to search one page of movies by genre and language.
+	 * Like displayAllMoviesPage it reads the page from the table, through the
+	 * (genre, language, id) index.
+	 * 
+	 * @param filmGenre
+	 * @param filmLanguage
+	 * @param pageSize
+	 * @param cursor
+	 * @return
+	 * @throws EmptyFieldException
+	 * @throws InvalidNameException
+	 * @throws InvalidDetailsException
+	 * @throws DbException
+	 */
+	public static ShowPage searchContentsPage(String filmGenre, String filmLanguage, int pageSize, String cursor)
+			throws EmptyFieldException, InvalidNameException, InvalidDetailsException, DbException {
+		ValidateSearchDetails.validateDetails(filmGenre, filmLanguage);
+		validatePageSize(pageSize);
+		int afterId = parseIdCursor(cursor);
+		List<Show> shows = ShowListDao.getShowsPageByGenreAndLanguage(filmGenre.trim(), filmLanguage.trim(), afterId,
+				pageSize + 1);
+		return toIdPage(shows, pageSize);
+	}
+
+	/**
+	 * This method is used to get one page of trending movies, most liked first.
+	 * The page is picked from the like totals on the trending board and its
+	 * movies from the catalog snapshot, no query is run, so the likes include
+	 * those not yet flushed to the table.
+	 * 
+	 * @param pageSize
+	 * @param cursor
+	 * @return
+	 * @throws DbException
+	 * @throws InvalidDetailsException
+	 */
+	public static ShowPage getTrendingMoviesPage(int pageSize, String cursor)
+			throws DbException, InvalidDetailsException {
+		validatePageSize(pageSize);
+		long afterLikes = Long.MAX_VALUE;
+		int afterId = Integer.MAX_VALUE;
+		if (cursor != null) {
+			String[] position = cursor.split(":");
+			if (position.length != 2) {
+				throw new InvalidDetailsException(INVALID_CURSOR);
 			}
+			afterLikes = parseLikesCursor(position[0]);
+			afterId = parseCursorPart(position[1]);
 		}
+		List<TopK.Ranked<Integer>> ranked = TrendingTracker.getPage(afterLikes, afterId, pageSize + 1);
+		String nextCursor = null;
+		if (ranked.size() > pageSize) {
+			ranked = ranked.subList(0, pageSize);
+			TopK.Ranked<Integer> last = ranked.get(pageSize - 1);
+			nextCursor = last.getScore() + ":" + last.getKey();
+		}
+		List<Show> shows = new ArrayList<>(ranked.size());
+		CatalogSnapshot catalog = CatalogCache.get();
+		for (TopK.Ranked<Integer> trending : ranked) {
+			Show show = catalog.getById(trending.getKey());
+			if (show != null) {
+				show.setLikes((int) Math.min(Integer.MAX_VALUE, trending.getScore()));
+				shows.add(show);
+			}
+		}
+		return new ShowPage(shows, nextCursor);
+	}
 
-		return filteredMovieList;
+	private static void validatePageSize(int pageSize) throws InvalidDetailsException {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new InvalidDetailsException("page size should be between 1 and " + MAX_PAGE_SIZE);
+		}
+	}
+
+	private static int parseIdCursor(String cursor) throws InvalidDetailsException {
+		return cursor == null ? 0 : parseCursorPart(cursor);
+	}
+
+	private static int parseCursorPart(String part) throws InvalidDetailsException {
+		try {
+			return Integer.parseInt(part.trim());
+		} catch (NumberFormatException e) {
+			throw new InvalidDetailsException(INVALID_CURSOR);
+		}
+	}
+
+	private static long parseLikesCursor(String part) throws InvalidDetailsException {
+		try {
+			return Long.parseLong(part.trim());
+		} catch (NumberFormatException e) {
+			throw new InvalidDetailsException(INVALID_CURSOR);
+		}
+	}
+
+	/**
+	 * The dao fetches one row more than the page size, its presence tells whether
+	 * there is a next page
+	 */
+	private static ShowPage toIdPage(List<Show> shows, int pageSize) {
+		String nextCursor = null;
+		if (shows.size() > pageSize) {
+			shows = shows.subList(0, pageSize);
+			nextCursor = String.valueOf(shows.get(pageSize - 1).getId());
+		}
+		return new ShowPage(shows, nextCursor);
 	}
 
 	/**
@@ -192,20 +318,14 @@ public class ShowService {
 			String membership, String grade, String status) throws EmptyFieldException, InvalidNameException,
 			InvalidDetailsException, DbException, MovieAlreadyExistsException {
 		boolean added = false;
-		boolean genreValid = NameValidationUtil.validateName(genre);
-		boolean nameValid = NameValidationUtil.validateName(name);
-		boolean yearValid = ShowDetailsValidationUtil.isYearValid(year);
-		boolean languagevalid = NameValidationUtil.validateName(language);
-		boolean categoryValid = NameValidationUtil.validateName(category);
-		boolean memberShipValid = ShowDetailsValidationUtil.validateMembership(membership);
-		boolean gradeValid = ShowDetailsValidationUtil.gradeValidation(grade);
-		boolean statusValid = ShowDetailsValidationUtil.statusValidation(status);
-		int likes = 0;
-		boolean isMoviePresent = isMoviePresent(name, year, language);
-		if (genreValid && nameValid && yearValid && languagevalid && categoryValid && memberShipValid && gradeValid
-				&& statusValid && !isMoviePresent) {
-			Show show = new Show(genre, name, year, language, category, membership, grade, status, likes);
-			ShowListDao.addMovies(show);
+		Show show = new Show(genre, name, year, language, category, membership, grade, status, 0);
+		if (isValidShow(show) && !isMoviePresent(name, year, language)) {
+			int movieId = ShowListDao.addMovies(show);
+			if (movieId == 0) {
+				throw new MovieAlreadyExistsException("movie already exists");
+			}
+			show.setId(movieId);
+			CatalogCache.upsert(show);
 			added = true;
 		} else {
 			throw new MovieAlreadyExistsException("movie already exists");
@@ -215,21 +335,75 @@ public class ShowService {
 	}
 
 	/**
-	 * This method checks whether the movie is already present
+	 * This method is used to add a batch of movies, for example a nightly
+	 * import. Every show is validated first, then all of them are inserted in one
+	 * transaction and the catalog snapshot is patched once for the whole batch.
+	 * Shows that already exist, in the catalog or by the time they are inserted,
+	 * are skipped and their titles logged.
+	 * 
+	 * @param shows
+	 * @return the number of shows added
+	 * @throws EmptyFieldException
+	 * @throws InvalidNameException
+	 * @throws InvalidDetailsException
+	 * @throws DbException
 	 */
-	public static boolean isMoviePresent(String name, int year, String language) throws DbException {
-		boolean present = false;
-		List<Show> showDetails = ShowListDao.getShowDetails();
-		for (Show show : showDetails) {
-			if (show.getMovieName().equals(name) && show.getMovieYear() == year
-					&& show.getMovieLanguage().equalsIgnoreCase(language.trim())) {
-
-				present = true;
-
+	public static int importShows(List<Show> shows)
+			throws EmptyFieldException, InvalidNameException, InvalidDetailsException, DbException {
+		for (Show show : shows) {
+			if (!isValidShow(show)) {
+				throw new InvalidDetailsException("invalid show details " + show.getMovieName());
 			}
 		}
-		return present;
+		CatalogSnapshot catalog = CatalogCache.get();
+		List<Show> added = new ArrayList<>();
+		List<String> skipped = new ArrayList<>();
+		TransactionManager.begin();
+		try {
+			for (Show show : shows) {
+				int movieId = 0;
+				if (!catalog.containsTitle(show.getMovieName(), show.getMovieYear(), show.getMovieLanguage())) {
+					movieId = ShowListDao.addMovies(show);
+				}
+				if (movieId != 0) {
+					show.setId(movieId);
+					added.add(show);
+				} else {
+					skipped.add(
+							show.getMovieName() + " (" + show.getMovieYear() + ", " + show.getMovieLanguage() + ")");
+				}
+			}
+			TransactionManager.commit();
+		} finally {
+			TransactionManager.end();
+		}
+		CatalogCache.apply(added);
+		if (!skipped.isEmpty()) {
+			Logger.log("import skipped " + skipped.size() + " existing shows: " + skipped);
+		}
+		return added.size();
+	}
+
+	private static boolean isValidShow(Show show)
+			throws EmptyFieldException, InvalidNameException, InvalidDetailsException {
+		boolean genreValid = NameValidationUtil.validateName(show.getMovieGenre());
+		boolean nameValid = NameValidationUtil.validateName(show.getMovieName());
+		boolean yearValid = ShowDetailsValidationUtil.isYearValid(show.getMovieYear());
+		boolean languagevalid = NameValidationUtil.validateName(show.getMovieLanguage());
+		boolean categoryValid = NameValidationUtil.validateName(show.getMovieCategory());
+		boolean memberShipValid = ShowDetailsValidationUtil.validateMembership(show.getMembership());
+		boolean gradeValid = ShowDetailsValidationUtil.gradeValidation(show.getMovieGrade());
+		boolean statusValid = ShowDetailsValidationUtil.statusValidation(show.getStatus());
+		return genreValid && nameValid && yearValid && languagevalid && categoryValid && memberShipValid
+				&& gradeValid && statusValid;
+	}
 
+	/**
+	 * This method checks whether the movie is already present, with one hash
+	 * lookup on the catalog snapshot
+	 */
+	public static boolean isMoviePresent(String name, int year, String language) throws DbException {
+		return CatalogCache.get().containsTitle(name, year, language);
 	}
 
 	/**
@@ -245,15 +419,11 @@ public class ShowService {
 	 */
 	public static boolean deleteMovie(int movieId) throws DbException, EmptyFieldException, InvalidMovieIdException {
 		boolean deleted = false;
-		List<Show> show = ShowListDao.getShowDetails();
-
-		for (Show showId : show) {
-			if (showId.getId() == movieId && IdValidationUtil.validateId(movieId)) {
-				ShowListDao.deleteMovies(movieId);
-				deleted = true;
-				break;
-			}
-
+		if (findShow(movieId) != null && IdValidationUtil.validateId(movieId)) {
+			ShowListDao.deleteMovies(movieId);
+			CatalogCache.remove(movieId);
+			TrendingTracker.remove(movieId);
+			deleted = true;
 		}
 		if (!deleted) {
 			throw new InvalidMovieIdException("movie id does not exists");
@@ -281,6 +451,9 @@ public class ShowService {
 				ShowListDao.updatePrimeStatus(movieId, "prime");
 				updated = true;
 			}
+			if (updated) {
+				CatalogCache.apply(ShowListDao.getShowsByIds(new int[] { movieId }, true).values());
+			}
 
 		} else {
 			throw new InvalidMovieIdException("movie id does no exists");
@@ -298,14 +471,7 @@ public class ShowService {
 	 * @throws InvalidMovieIdException
 	 */
 	public static boolean isMovieIdPresent(int movieId) throws DbException, InvalidMovieIdException {
-		boolean present = false;
-
-		List<Show> show = ShowListDao.getShowDetails();
-		for (Show showId : show) {
-			if (showId.getId() == movieId) {
-				present = true;
-			}
-		}
+		boolean present = findShow(movieId) != null;
 		if (!present) {
 			throw new InvalidMovieIdException("movie Id does not exists");
 		}
@@ -320,22 +486,25 @@ public class ShowService {
 	 * @throws DbException
 	 */
 	public static String getMovieStatus(int movieId) throws DbException {
-		String status = null;
-		boolean present = false;
-		List<Show> show = ShowListDao.getShowDetails();
-		for (Show showId : show) {
-			if (showId.getId() == movieId) {
-				status = showId.getMembership();
-				present = true;
-			}
-		}
-		if (!present) {
+		Show show = findShow(movieId);
+		if (show == null) {
 			throw new NullPointerException("Id does not exists");
 		}
-		return status;
+		return show.getMembership();
 
 	}
 
+	/**
+	 * This method looks up a single show by id in the catalog snapshot
+	 * 
+	 * @param movieId
+	 * @return the show, or null when the id does not exist
+	 * @throws DbException
+	 */
+	private static Show findShow(int movieId) throws DbException {
+		return CatalogCache.get().getById(movieId);
+	}
+
 	/**
 	 * This method is used to check whether the movie is already added by the user
 	 * 
@@ -362,7 +531,8 @@ public class ShowService {
 	}
 
 	/**
-	 * This method is used to add movie to favorites list
+	 * This method is used to add movie to favorites list. The favorite row and
+	 * the like increment are committed together on one connection.
 	 * 
 	 * @param userId
 	 * @param movieId
@@ -374,20 +544,41 @@ public class ShowService {
 	public static boolean addToFavorites(String userId, int movieId)
 			throws DbException, InvalidUserIdException, InvalidMovieIdException {
 		boolean isAdded = false;
-		boolean validUser = UserService.isValidUser(userId);
-		boolean validMovieId = isMovieIdPresent(movieId);
-		boolean isAlreadyExists = isFavoriteMovieExixts(movieId, userId);
-		if (validMovieId && validUser && !isAlreadyExists) {
-			List<Show> favorite = getFavorites(userId, movieId);
-			for (Show favorites : favorite) {
-				ShowListDao.addFavoriteMovies(favorites);
-				ShowListDao.updateLikes(movieId);
-				isAdded = true;
+		TransactionManager.begin();
+		try {
+			boolean validUser = UserService.isValidUser(userId);
+			boolean validMovieId = isMovieIdPresent(movieId);
+			boolean isAlreadyExists = isFavoriteMovieExixts(movieId, userId);
+			if (validMovieId && validUser && !isAlreadyExists) {
+				List<Show> favorite = getFavorites(userId, movieId);
+				for (Show favorites : favorite) {
+					ShowListDao.addFavoriteMovies(favorites);
+					isAdded = true;
+				}
 			}
+			TransactionManager.commit();
+		} finally {
+			TransactionManager.end();
+		}
+		if (isAdded) {
+			recordLike(movieId);
+			EngagementTracker.record(Engagement.FAVORITE, movieId);
 		}
 		return isAdded;
 	}
 
+	/**
+	 * This method counts a like for the movie. The trending board and the recent
+	 * likes window see it at once, the shows table with the next flush of
+	 * {@link LikeCounter}.
+	 * 
+	 * @param movieId
+	 */
+	private static void recordLike(int movieId) {
+		TrendingTracker.recordLike(movieId);
+		RecencyTracker.recordLike(movieId);
+	}
+
 	/**
 	 * This method is used to get the favorite movie list
 	 * 
@@ -398,22 +589,19 @@ public class ShowService {
 	 */
 	public static List<Show> getFavorites(String userId, int movieId) throws DbException {
 		List<Show> favorites = new ArrayList<>();
-		List<Show> show = ShowListDao.getShowDetails();
-
-		for (Show showDetail : show) {
-			if (showDetail.getId() == movieId) {
-				String genre = showDetail.getMovieGenre();
-				String name = showDetail.getMovieName();
-				int year = showDetail.getMovieYear();
-				String language = showDetail.getMovieLanguage();
-				String category = showDetail.getMovieCategory();
-				String membership = showDetail.getMembership();
-				String grade = showDetail.getMovieGrade();
-				String status = showDetail.getStatus();
-
-				favorites.add(
-						new Show(userId, movieId, genre, name, year, language, category, membership, grade, status));
-			}
+		Show showDetail = findShow(movieId);
+		if (showDetail != null) {
+			String genre = showDetail.getMovieGenre();
+			String name = showDetail.getMovieName();
+			int year = showDetail.getMovieYear();
+			String language = showDetail.getMovieLanguage();
+			String category = showDetail.getMovieCategory();
+			String membership = showDetail.getMembership();
+			String grade = showDetail.getMovieGrade();
+			String status = showDetail.getStatus();
+
+			favorites.add(
+					new Show(userId, movieId, genre, name, year, language, category, membership, grade, status));
 		}
 		return favorites;
 
@@ -439,7 +627,8 @@ public class ShowService {
 	}
 
 	/**
-	 * This method is used to get the trending movies
+	 * This method is used to get the trending movies, the most liked first. The
+	 * list comes from the in-memory trending board, no query is run.
 	 * 
 	 * @param movieId
 	 * @return
@@ -447,9 +636,12 @@ public class ShowService {
 	 */
 	public static List<Show> getTrendingMovies() throws DbException {
 		List<Show> trendingMovies = new ArrayList<>();
-		for (Show trending : ShowListDao.getTrendingMovies()) {
-			if (trending.getLikes() != 0) {
-				trendingMovies.add(trending);
+		CatalogSnapshot catalog = CatalogCache.get();
+		for (TopK.Ranked<Integer> trending : TrendingTracker.getTop()) {
+			Show show = catalog.getById(trending.getKey());
+			if (show != null && trending.getScore() != 0) {
+				show.setLikes((int) Math.min(Integer.MAX_VALUE, trending.getScore()));
+				trendingMovies.add(show);
 			}
 		}
 
@@ -458,7 +650,48 @@ public class ShowService {
 	}
 
 	/**
-	 * This method is used to search movies in the movie list
+	 * This method is used to get the movies trending now, ranked by recent likes
+	 * with older likes counting less. The ranking is refreshed in the background,
+	 * no query is run.
+	 * 
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<Show> getTrendingMoviesByRecency() throws DbException {
+		List<Show> trendingMovies = new ArrayList<>();
+		CatalogSnapshot catalog = CatalogCache.get();
+		for (int movieId : RecencyTracker.getRanking()) {
+			Show show = catalog.getById(movieId);
+			if (show != null) {
+				trendingMovies.add(show);
+			}
+		}
+		return trendingMovies;
+	}
+
+	/**
+	 * This method is used to get the movies with the most engagements of one
+	 * kind, favorites, downloads, searches or all of them, in the current window
+	 * 
+	 * @param engagement
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<Show> getMostEngagedMovies(Engagement engagement) throws DbException {
+		List<Show> engagedMovies = new ArrayList<>();
+		CatalogSnapshot catalog = CatalogCache.get();
+		for (TopK.Ranked<Integer> engaged : EngagementTracker.getHeavyHitters(engagement)) {
+			Show show = catalog.getById(engaged.getKey());
+			if (show != null) {
+				engagedMovies.add(show);
+			}
+		}
+		return engagedMovies;
+	}
+
+	/**
+	 * This method is used to search movies in the movie list. The search counts
+	 * as a search engagement with the movies found.
 	 * 
 	 * @param movieName
 	 * @return
@@ -468,22 +701,93 @@ public class ShowService {
 	 */
 	public static List<Show> searchByMovieName(String movieName)
 			throws DbException, EmptyFieldException, InvalidNameException {
+		return searchByMovieName(movieName, true);
+	}
+
+	/**
+	 * This method is used to search movies in the movie list while the name is
+	 * being typed. The search is not counted as an engagement, so a query typed
+	 * one letter at a time is counted once, when it is submitted through
+	 * searchByMovieName.
+	 * 
+	 * @param movieName
+	 * @return
+	 * @throws DbException
+	 * @throws InvalidNameException
+	 * @throws EmptyFieldException
+	 */
+	public static List<Show> searchByMovieNameAsTyped(String movieName)
+			throws DbException, EmptyFieldException, InvalidNameException {
+		return searchByMovieName(movieName, false);
+	}
+
+	private static List<Show> searchByMovieName(String movieName, boolean submitted)
+			throws DbException, EmptyFieldException, InvalidNameException {
 		boolean valid = NameValidationUtil.validateName(movieName);
 		List<Show> searchResults = null;
 		if (valid) {
-			String finalMovieName = movieName.toLowerCase();
-			searchResults = ShowListDao.getShowDetails().stream()
-					.filter(movie -> movie.getMovieName().toLowerCase().contains(finalMovieName))
-					.collect(Collectors.toList());
+			searchResults = CatalogCache.get().searchByName(movieName);
+			if (submitted && searchResults.size() <= SEARCH_SIGNAL_LIMIT) {
+				for (Show show : searchResults) {
+					EngagementTracker.record(Engagement.SEARCH, show.getId());
+				}
+			}
+		}
+		return searchResults;
+
+	}
 
+	/**
+	 * This method is used to search movies by name allowing for typing mistakes.
+	 * Movies whose name is within maxEdits single character edits of the given
+	 * name are returned, closest first and then most liked.
+	 * 
+	 * @param movieName
+	 * @param maxEdits
+	 * @return
+	 * @throws DbException
+	 * @throws EmptyFieldException
+	 * @throws InvalidNameException
+	 * @throws InvalidDetailsException
+	 */
+	public static List<Show> fuzzySearchByMovieName(String movieName, int maxEdits)
+			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
+		List<Show> searchResults = null;
+		if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+			throw new InvalidDetailsException("allowed edits should be between 0 and " + MAX_EDITS);
+		}
+		if (NameValidationUtil.validateName(movieName)) {
+			searchResults = CatalogCache.get().fuzzySearchByName(movieName, maxEdits, FUZZY_RESULT_LIMIT);
 		}
 		return searchResults;
+	}
 
+	/**
+	 * This method is used to suggest movies while the user types, the most liked
+	 * movies whose name starts with the prefix come first
+	 * 
+	 * @param prefix
+	 * @param limit
+	 * @return
+	 * @throws DbException
+	 * @throws EmptyFieldException
+	 * @throws InvalidNameException
+	 * @throws InvalidDetailsException
+	 */
+	public static List<Show> autocompleteMovieName(String prefix, int limit)
+			throws DbException, EmptyFieldException, InvalidNameException, InvalidDetailsException {
+		List<Show> suggestions = null;
+		validatePageSize(limit);
+		if (NameValidationUtil.validateName(prefix)) {
+			suggestions = CatalogCache.get().autocomplete(prefix, limit);
+		}
+		return suggestions;
 	}
 
 	/**
 	 * This method is used to set the preferences and displays only the preferred
-	 * language movies
+	 * language movies, most liked first, from the language's trending
+	 * leaderboard
 	 * 
 	 * @param preferredLanguage
 	 * @return
@@ -492,16 +796,8 @@ public class ShowService {
 	 */
 	public static List<Show> getPreferredMoviesByLanguage(String preferredLanguage)
 			throws DbException, InvalidDetailsException {
-		List<Show> preferredTrending = new ArrayList<>();
-		List<Show> trendingMovieList = ShowListDao.getTrendingMovies();
-		boolean valid = false;
-		for (Show trending : trendingMovieList) {
-			if (trending.getMovieLanguage().equalsIgnoreCase(preferredLanguage.trim())) {
-				preferredTrending.add(trending);
-				valid = true;
-			}
-		}
-		if (!valid) {
+		List<Show> preferredTrending = getTrendingMoviesBy(ShowAttribute.LANGUAGE, preferredLanguage);
+		if (preferredTrending.isEmpty()) {
 			throw new InvalidDetailsException("no movies in this preference !");
 		}
 		Logger.log(preferredTrending);
@@ -510,7 +806,55 @@ public class ShowService {
 	}
 
 	/**
-	 * This method is used to switch to kids zone
+	 * This method is used to get the trending movies of one genre, most liked
+	 * first
+	 * 
+	 * @param genre
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<Show> getTrendingMoviesByGenre(String genre) throws DbException {
+		return getTrendingMoviesBy(ShowAttribute.GENRE, genre);
+	}
+
+	/**
+	 * This method reads a trending leaderboard. While the leaderboard is not
+	 * full every liked movie of that value is on it, so the list is topped up
+	 * with the value's other movies from the catalog, which have no likes.
+	 * 
+	 * @param attribute
+	 * @param value
+	 * @return
+	 * @throws DbException
+	 */
+	private static List<Show> getTrendingMoviesBy(ShowAttribute attribute, String value) throws DbException {
+		List<Show> trendingMovies = new ArrayList<>();
+		Set<Integer> ranked = new HashSet<>();
+		CatalogSnapshot catalog = CatalogCache.get();
+		for (TopK.Ranked<Integer> trending : TrendingTracker.getTop(attribute, value)) {
+			Show show = catalog.getById(trending.getKey());
+			if (show != null) {
+				show.setLikes((int) Math.min(Integer.MAX_VALUE, trending.getScore()));
+				trendingMovies.add(show);
+				ranked.add(show.getId());
+			}
+		}
+		if (trendingMovies.size() < TrendingTracker.getSize()) {
+			for (Show show : catalog.search(attribute, value)) {
+				if (trendingMovies.size() == TrendingTracker.getSize()) {
+					break;
+				}
+				if (!ranked.contains(show.getId())) {
+					trendingMovies.add(show);
+				}
+			}
+		}
+		return trendingMovies;
+	}
+
+	/**
+	 * This method is used to switch to kids zone. The user and subscription are
+	 * checked first, the kids movies are copies the caller may change.
 	 * 
 	 * @param userId
 	 * @param zone
@@ -522,31 +866,11 @@ public class ShowService {
 	public static List<Show> switchToKidsZone(String userId, String zone)
 			throws DbException, InvalidUserIdException, InvalidDetailsException {
 		List<Show> kidsMovies = new ArrayList<>();
-		List<Show> shows = ShowListDao.getShowDetails();
 		boolean validUser = UserService.isValidUser(userId);
 		boolean isRechargedExpired = UserService.isRechargeNotExpired(userId);
 		if (validUser && !isRechargedExpired) {
 			if (zone.equalsIgnoreCase("kids")) {
-				for (Show kids : shows) {
-					if (kids.getMovieGenre().equalsIgnoreCase("comedy")
-							|| kids.getMovieGenre().equalsIgnoreCase("adventure")
-							|| kids.getMovieGenre().equalsIgnoreCase("kids")
-							|| kids.getMovieGrade().equalsIgnoreCase("u")
-							|| kids.getMovieGrade().equalsIgnoreCase("v")) {
-						int movieId = kids.getId();
-						String genre = kids.getMovieGenre();
-						String name = kids.getMovieName();
-						int year = kids.getMovieYear();
-						String language = kids.getMovieLanguage();
-						String category = kids.getMovieCategory();
-						String membership = kids.getMembership();
-						String grade = kids.getMovieGrade();
-						String status = kids.getStatus();
-
-						kidsMovies.add(
-								new Show(movieId, genre, name, year, language, category, membership, grade, status));
-					}
-				}
+				kidsMovies = CatalogCache.get().getKidsShows();
 			} else {
 				throw new InvalidDetailsException("invalid details");
 			}
@@ -579,6 +903,9 @@ public class ShowService {
 				valid = true;
 			}
 		}
+		if (valid) {
+			EngagementTracker.record(Engagement.DOWNLOAD, movieId);
+		}
 		return valid;
 	}
 
@@ -614,23 +941,21 @@ public class ShowService {
 	 */
 	public static List<Show> getDownloads(String userId, int movieId) throws DbException {
 		List<Show> download = new ArrayList<>();
-		List<Show> show = ShowListDao.getShowDetails();
-		for (Show movie : show) {
-			if (movie.getId() == movieId) {
-				String genre = movie.getMovieGenre();
-				String name = movie.getMovieName();
-				int year = movie.getMovieYear();
-				String language = movie.getMovieLanguage();
-				String category = movie.getMovieCategory();
-				String membership = movie.getMembership();
-				String grade = movie.getMovieGrade();
-				String status = movie.getStatus();
-				LocalDate downloadDate = LocalDate.now();
-				LocalDate expiryDate = downloadDate.plusDays(3);
-
-				download.add(new Show(userId, movieId, genre, name, year, language, category, membership, grade, status,
-						downloadDate, expiryDate));
-			}
+		Show movie = findShow(movieId);
+		if (movie != null) {
+			String genre = movie.getMovieGenre();
+			String name = movie.getMovieName();
+			int year = movie.getMovieYear();
+			String language = movie.getMovieLanguage();
+			String category = movie.getMovieCategory();
+			String membership = movie.getMembership();
+			String grade = movie.getMovieGrade();
+			String status = movie.getStatus();
+			LocalDate downloadDate = LocalDate.now();
+			LocalDate expiryDate = downloadDate.plusDays(3);
+
+			download.add(new Show(userId, movieId, genre, name, year, language, category, membership, grade, status,
+					downloadDate, expiryDate));
 		}
 		return download;
 	}
@@ -0,0 +1,98 @@
+package in.venkat.trending;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate event counts per key in a fixed amount of memory. With width
+ * ceil(e / epsilon) and depth ceil(ln(1 / delta)) an estimate is never below
+ * the true count, and above it by more than epsilon times the total count with
+ * probability at most delta. Updates are conservative: a key only raises the
+ * counters that hold its minimum, which keeps the overestimate smaller. Two
+ * updates of the same key must not both read the old minimum, so updates of a
+ * key are serialized by one of a fixed set of stripe locks, while counters are
+ * only ever raised, which keeps updates of different keys safe without a lock.
+ */
+public class CountMinSketch {
+	private static final int STRIPES = 64;
+
+	private final int width;
+	private final int depth;
+	private final long[] seeds;
+	private final AtomicLongArray counters;
+	private final Object[] stripes = new Object[STRIPES];
+
+	public CountMinSketch(double epsilon, double delta) {
+		if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+			throw new IllegalArgumentException("epsilon and delta must be between 0 and 1");
+		}
+		this.width = (int) Math.ceil(Math.E / epsilon);
+		this.depth = (int) Math.ceil(Math.log(1 / delta));
+		this.seeds = new long[depth];
+		for (int row = 0; row < depth; row++) {
+			seeds[row] = (row + 1) * 0x9E3779B97F4A7C15L;
+		}
+		this.counters = new AtomicLongArray(width * depth);
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			stripes[stripe] = new Object();
+		}
+	}
+
+	/**
+	 * This method adds count events for the key and gives the new estimate
+	 *
+	 * @param key
+	 * @param count
+	 * @return
+	 */
+	public long add(int key, long count) {
+		int[] cells = cells(key);
+		synchronized (stripes[(key ^ key >>> 16) & (STRIPES - 1)]) {
+			long target = estimate(cells) + count;
+			for (int cell : cells) {
+				long current;
+				do {
+					current = counters.get(cell);
+				} while (current < target && !counters.compareAndSet(cell, current, target));
+			}
+			return target;
+		}
+	}
+
+	/**
+	 * This method gives the estimated number of events for the key
+	 *
+	 * @param key
+	 * @return
+	 */
+	public long estimate(int key) {
+		return estimate(cells(key));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	private long estimate(int[] cells) {
+		long estimate = Long.MAX_VALUE;
+		for (int cell : cells) {
+			estimate = Math.min(estimate, counters.get(cell));
+		}
+		return estimate;
+	}
+
+	private int[] cells(int key) {
+		int[] cells = new int[depth];
+		for (int row = 0; row < depth; row++) {
+			long hash = (key ^ seeds[row]) * 0xFF51AFD7ED558CCDL;
+			hash ^= hash >>> 33;
+			hash *= 0xC4CEB9FE1A85EC53L;
+			hash ^= hash >>> 33;
+			cells[row] = row * width + (int) ((hash >>> 1) % width);
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,150 @@
+package in.venkat.trending;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import in.venkat.util.ConfigUtil;
+
+/**
+ * Most engaged movies per kind of engagement, counted in a
+ * {@link CountMinSketch} with the heavy hitters kept in a {@link TopK} over
+ * the estimates. Memory is fixed by engagement.epsilon and engagement.delta,
+ * whatever the number of titles. Counting starts in a new window every
+ * engagement.window-ms and the window before it is kept, weighted by the part
+ * of it that still lies within the last engagement.window-ms, so results do
+ * not empty out when a window starts.
+ */
+public class EngagementTracker {
+	private EngagementTracker() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	/**
+	 * Kinds of engagement, ALL counts every one of them
+	 */
+	public enum Engagement {
+		FAVORITE, DOWNLOAD, SEARCH, ALL
+	}
+
+	private static final int SIZE = ConfigUtil.getInt("trending.size", 50);
+	private static final double EPSILON = ConfigUtil.getDouble("engagement.epsilon", 0.001);
+	private static final double DELTA = ConfigUtil.getDouble("engagement.delta", 0.001);
+	private static final long WINDOW = ConfigUtil.getLong("engagement.window-ms", 3600000);
+
+	private static volatile Windows windows = new Windows(newTrackers(), null);
+
+	static {
+		if (WINDOW > 0) {
+			ScheduledExecutorService rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "engagement-window");
+				thread.setDaemon(true);
+				return thread;
+			});
+			rotator.scheduleAtFixedRate(() -> windows = new Windows(newTrackers(), windows.current), WINDOW, WINDOW,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * This method counts one engagement with the movie
+	 *
+	 * @param engagement
+	 * @param movieId
+	 */
+	public static void record(Engagement engagement, int movieId) {
+		Map<Engagement, Tracker> current = windows.current;
+		current.get(engagement).add(movieId);
+		current.get(Engagement.ALL).add(movieId);
+	}
+
+	/**
+	 * This method gives the movies with the most engagements of the kind over
+	 * the last window, with their estimated counts, most engaged first. The
+	 * candidates are the heavy hitters of the current and the previous window.
+	 *
+	 * @param engagement
+	 * @return
+	 */
+	public static List<TopK.Ranked<Integer>> getHeavyHitters(Engagement engagement) {
+		Windows current = windows;
+		TopK<Integer> combined = new TopK<>(SIZE);
+		offerAll(combined, current, current.current.get(engagement));
+		if (current.previous != null) {
+			offerAll(combined, current, current.previous.get(engagement));
+		}
+		return combined.top();
+	}
+
+	/**
+	 * This method gives the estimated engagements of the kind with the movie
+	 * over the last window
+	 *
+	 * @param engagement
+	 * @param movieId
+	 * @return
+	 */
+	public static long estimate(Engagement engagement, int movieId) {
+		return windows.estimate(engagement, movieId);
+	}
+
+	private static void offerAll(TopK<Integer> combined, Windows current, Tracker tracker) {
+		for (TopK.Ranked<Integer> hitter : tracker.heavyHitters.top()) {
+			combined.offer(hitter.getKey(), current.estimate(tracker.engagement, hitter.getKey()));
+		}
+	}
+
+	private static Map<Engagement, Tracker> newTrackers() {
+		Map<Engagement, Tracker> created = new EnumMap<>(Engagement.class);
+		for (Engagement engagement : Engagement.values()) {
+			created.put(engagement, new Tracker(engagement));
+		}
+		return created;
+	}
+
+	/**
+	 * The window being counted and the one before it, swapped together
+	 */
+	private static class Windows {
+		private final Map<Engagement, Tracker> current;
+		private final Map<Engagement, Tracker> previous;
+		private final long start = System.currentTimeMillis();
+
+		Windows(Map<Engagement, Tracker> current, Map<Engagement, Tracker> previous) {
+			this.current = current;
+			this.previous = previous;
+		}
+
+		/**
+		 * The current count plus the previous one scaled by the part of the
+		 * previous window that is still within the last WINDOW milliseconds
+		 */
+		long estimate(Engagement engagement, int movieId) {
+			long estimate = current.get(engagement).sketch.estimate(movieId);
+			if (previous != null && WINDOW > 0) {
+				double elapsed = Math.min(1, (double) (System.currentTimeMillis() - start) / WINDOW);
+				estimate += Math.round(previous.get(engagement).sketch.estimate(movieId) * (1 - elapsed));
+			}
+			return estimate;
+		}
+	}
+
+	private static class Tracker {
+		private final Engagement engagement;
+		private final CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+		private final TopK<Integer> heavyHitters = new TopK<>(SIZE);
+
+		Tracker(Engagement engagement) {
+			this.engagement = engagement;
+		}
+
+		void add(int movieId) {
+			heavyHitters.offer(movieId, sketch.add(movieId, 1));
+		}
+	}
+}
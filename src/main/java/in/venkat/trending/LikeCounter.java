@@ -0,0 +1,139 @@
+package in.venkat.trending;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import in.venkat.dao.ShowListDao;
+import in.venkat.exceptions.DbException;
+import in.venkat.util.ConfigUtil;
+import in.venkat.util.Logger;
+
+/**
+ * Write-behind buffer for likes. A like only increments a striped in-memory
+ * counter, a background thread adds the accumulated counts to shows.likes in
+ * one batched update every likes.flush-interval-ms, and once more when the
+ * process shuts down. Hot titles therefore no longer queue on their row lock
+ * once per like.
+ */
+public class LikeCounter {
+	private LikeCounter() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	private static final long FLUSH_INTERVAL = ConfigUtil.getLong("likes.flush-interval-ms", 1000);
+	private static final Map<Integer, LongAdder> PENDING = new ConcurrentHashMap<>();
+	/**
+	 * Held while pending likes are written to the table. A reader that must see
+	 * each like exactly once, either in the table or as pending, holds it across
+	 * both reads.
+	 */
+	static final Object FLUSH_LOCK = new Object();
+
+	static {
+		ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "like-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(LikeCounter::flushQuietly, FLUSH_INTERVAL, FLUSH_INTERVAL,
+				TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(LikeCounter::flushQuietly, "like-flusher-shutdown"));
+	}
+
+	/**
+	 * This method records one like for the movie
+	 *
+	 * @param movieId
+	 */
+	public static void increment(int movieId) {
+		PENDING.computeIfAbsent(movieId, id -> new LongAdder()).increment();
+	}
+
+	/**
+	 * This method gives the likes of the movie not yet written to the table
+	 *
+	 * @param movieId
+	 * @return
+	 */
+	public static long getPending(int movieId) {
+		LongAdder pending = PENDING.get(movieId);
+		return pending == null ? 0 : pending.sum();
+	}
+
+	/**
+	 * This method gives the likes not yet written to the table for every movie
+	 * that has some
+	 *
+	 * @return
+	 */
+	public static Map<Integer, Long> getPendingLikes() {
+		Map<Integer, Long> pending = new HashMap<>();
+		for (Map.Entry<Integer, LongAdder> counter : PENDING.entrySet()) {
+			long likes = counter.getValue().sum();
+			if (likes != 0) {
+				pending.put(counter.getKey(), likes);
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * This method writes every pending like to the table in one update. The
+	 * counts taken are subtracted rather than reset, so likes recorded during
+	 * the flush stay pending, and they are added back when the update fails.
+	 *
+	 * @throws DbException
+	 */
+	public static void flush() throws DbException {
+		synchronized (FLUSH_LOCK) {
+			flushPending();
+		}
+	}
+
+	private static void flushPending() throws DbException {
+		List<Integer> movieIds = new ArrayList<>();
+		List<Long> deltas = new ArrayList<>();
+		for (Map.Entry<Integer, LongAdder> counter : PENDING.entrySet()) {
+			long delta = counter.getValue().sum();
+			if (delta != 0) {
+				counter.getValue().add(-delta);
+				movieIds.add(counter.getKey());
+				deltas.add(delta);
+			}
+		}
+		if (movieIds.isEmpty()) {
+			return;
+		}
+		int[] ids = new int[movieIds.size()];
+		int[] counts = new int[movieIds.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = movieIds.get(i);
+			counts[i] = (int) Math.min(Integer.MAX_VALUE, deltas.get(i));
+		}
+		try {
+			ShowListDao.addLikes(ids, counts);
+		} catch (DbException | RuntimeException e) {
+			for (int i = 0; i < ids.length; i++) {
+				PENDING.get(ids[i]).add(deltas.get(i));
+			}
+			throw e;
+		}
+	}
+
+	private static void flushQuietly() {
+		try {
+			flush();
+		} catch (DbException | RuntimeException e) {
+			Logger.exception(e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package in.venkat.trending;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Likes of one movie over a sliding window, as a ring of time buckets. Each
+ * slot packs the bucket number in its high 32 bits and the count in the low
+ * 32 bits, so moving a slot on to a new bucket and counting in it are one
+ * compare-and-set, without a lock.
+ */
+class LikeWindow {
+	private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+	private final AtomicLongArray slots;
+
+	LikeWindow(int buckets) {
+		slots = new AtomicLongArray(buckets);
+	}
+
+	/**
+	 * This method counts one like in the given bucket, clearing the slot first
+	 * when it still holds an older bucket
+	 *
+	 * @param bucket
+	 */
+	void record(long bucket) {
+		int index = (int) (bucket % slots.length());
+		while (true) {
+			long slot = slots.get(index);
+			long next;
+			if (slot >>> 32 < bucket) {
+				next = bucket << 32 | 1;
+			} else if ((slot & COUNT_MASK) == COUNT_MASK) {
+				return;
+			} else {
+				next = slot + 1;
+			}
+			if (slots.compareAndSet(index, slot, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * This method gives the decayed like count at the given bucket. A like that
+	 * is age buckets old counts decay[age], likes older than the window do not
+	 * count.
+	 *
+	 * @param bucket
+	 * @param decay
+	 * @return
+	 */
+	double score(long bucket, double[] decay) {
+		double score = 0;
+		for (int index = 0; index < slots.length(); index++) {
+			long slot = slots.get(index);
+			long age = bucket - (slot >>> 32);
+			if (age >= 0 && age < decay.length) {
+				score += (slot & COUNT_MASK) * decay[(int) age];
+			}
+		}
+		return score;
+	}
+}
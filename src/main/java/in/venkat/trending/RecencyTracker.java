@@ -0,0 +1,115 @@
+package in.venkat.trending;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import in.venkat.util.ConfigUtil;
+
+/**
+ * Trending by recent likes. Every like is counted in the movie's
+ * {@link LikeWindow}, by default hourly buckets over seven days, and a like
+ * loses half its weight every trending.recency-half-life-ms. A background
+ * thread ranks the movies every trending.recency-interval-ms and publishes
+ * the ranking, so a query only reads the last published list.
+ */
+public class RecencyTracker {
+	private RecencyTracker() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	/**
+	 * Scores are kept to three decimals when ranked
+	 */
+	private static final double SCORE_SCALE = 1000;
+
+	private static final int SIZE = ConfigUtil.getInt("trending.size", 50);
+	private static final long BUCKET_MILLIS = Math.max(1000,
+			ConfigUtil.getLong("trending.recency-bucket-ms", 3600000));
+	private static final int BUCKETS = Math.max(1, ConfigUtil.getInt("trending.recency-buckets", 168));
+	private static final long HALF_LIFE = Math.max(1, ConfigUtil.getLong("trending.recency-half-life-ms", 86400000));
+	private static final long RANK_INTERVAL = Math.max(1000,
+			ConfigUtil.getLong("trending.recency-interval-ms", 60000));
+
+	private static final double[] DECAY = new double[BUCKETS];
+	private static final Map<Integer, LikeWindow> WINDOWS = new ConcurrentHashMap<>();
+
+	private static volatile List<Integer> ranking = Collections.emptyList();
+
+	static {
+		for (int age = 0; age < BUCKETS; age++) {
+			DECAY[age] = Math.pow(0.5, (double) age * BUCKET_MILLIS / HALF_LIFE);
+		}
+		ScheduledExecutorService ranker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "trending-recency-ranker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ranker.scheduleWithFixedDelay(RecencyTracker::rank, RANK_INTERVAL, RANK_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * This method counts one like for the movie in the current bucket
+	 *
+	 * @param movieId
+	 */
+	public static void recordLike(int movieId) {
+		long bucket = currentBucket();
+		/**
+		 * Counting inside compute keeps rank() from dropping the window between
+		 * looking it up and counting in it
+		 */
+		WINDOWS.compute(movieId, (id, window) -> {
+			LikeWindow counted = window == null ? new LikeWindow(BUCKETS) : window;
+			counted.record(bucket);
+			return counted;
+		});
+	}
+
+	/**
+	 * This method gives the movie ids ranked by decayed recent likes, as of the
+	 * last ranking. The list is shared and cannot be modified.
+	 *
+	 * @return
+	 */
+	public static List<Integer> getRanking() {
+		return ranking;
+	}
+
+	/**
+	 * This method ranks every movie liked within the window and publishes the
+	 * result. It runs on a schedule and can be called to publish a fresh ranking
+	 * at once. Movies with no like left in the window are forgotten.
+	 */
+	public static synchronized void rank() {
+		long bucket = currentBucket();
+		TopK<Integer> top = new TopK<>(SIZE);
+		for (Integer movieId : WINDOWS.keySet()) {
+			LikeWindow window = WINDOWS.computeIfPresent(movieId,
+					(id, current) -> scoreOf(current, bucket) > 0 ? current : null);
+			if (window != null) {
+				top.offer(movieId, scoreOf(window, bucket));
+			}
+		}
+		List<Integer> ranked = new ArrayList<>(top.size());
+		for (TopK.Ranked<Integer> movie : top.top()) {
+			ranked.add(movie.getKey());
+		}
+		ranking = Collections.unmodifiableList(ranked);
+	}
+
+	private static long scoreOf(LikeWindow window, long bucket) {
+		return Math.round(window.score(bucket, DECAY) * SCORE_SCALE);
+	}
+
+	private static long currentBucket() {
+		return System.currentTimeMillis() / BUCKET_MILLIS;
+	}
+}
@@ -0,0 +1,179 @@
+package in.venkat.trending;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The k keys with the highest scores, kept in a min-heap with a map from key
+ * to heap slot so that a key already in the heap is found in constant time.
+ * Built for scores that only grow: offer() moves a key down the heap, or
+ * replaces the smallest key once its score passes it. All methods are
+ * synchronized, k is expected to be small.
+ *
+ * @param <K>
+ */
+public class TopK<K> {
+	private final int capacity;
+	private final Object[] keys;
+	private final long[] scores;
+	private final Map<K, Integer> slots = new HashMap<>();
+	private int size;
+
+	public TopK(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.keys = new Object[this.capacity];
+		this.scores = new long[this.capacity];
+	}
+
+	/**
+	 * This method gives the key its new score. A key outside the top k enters
+	 * only when its score beats the smallest score held.
+	 *
+	 * @param key
+	 * @param score
+	 */
+	public synchronized void offer(K key, long score) {
+		Integer slot = slots.get(key);
+		if (slot != null) {
+			scores[slot] = Math.max(scores[slot], score);
+			siftDown(slot);
+		} else if (size < capacity) {
+			keys[size] = key;
+			scores[size] = score;
+			slots.put(key, size);
+			siftUp(size++);
+		} else if (score > scores[0]) {
+			slots.remove(key(0));
+			keys[0] = key;
+			scores[0] = score;
+			slots.put(key, 0);
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * This method drops the key, for example when the show is deleted
+	 *
+	 * @param key
+	 */
+	public synchronized void remove(K key) {
+		Integer slot = slots.remove(key);
+		if (slot == null) {
+			return;
+		}
+		size--;
+		if (slot < size) {
+			keys[slot] = keys[size];
+			scores[slot] = scores[size];
+			slots.put(key(slot), slot);
+			siftDown(slot);
+			siftUp(slot);
+		}
+		keys[size] = null;
+	}
+
+	/**
+	 * This method gives the keys held with their scores, highest score first
+	 *
+	 * @return
+	 */
+	public synchronized List<Ranked<K>> top() {
+		List<Ranked<K>> ranked = new ArrayList<>(size);
+		for (int slot = 0; slot < size; slot++) {
+			ranked.add(new Ranked<>(key(slot), scores[slot]));
+		}
+		ranked.sort(Comparator.comparingLong(Ranked<K>::getScore).reversed());
+		return ranked;
+	}
+
+	/**
+	 * This method is used to check whether the key is among the top k
+	 *
+	 * @param key
+	 * @return
+	 */
+	public synchronized boolean contains(K key) {
+		return slots.containsKey(key);
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K key(int slot) {
+		return (K) keys[slot];
+	}
+
+	private void siftUp(int slot) {
+		while (slot > 0) {
+			int parent = (slot - 1) / 2;
+			if (scores[parent] <= scores[slot]) {
+				return;
+			}
+			swap(slot, parent);
+			slot = parent;
+		}
+	}
+
+	private void siftDown(int slot) {
+		while (true) {
+			int smallest = slot;
+			int left = 2 * slot + 1;
+			int right = left + 1;
+			if (left < size && scores[left] < scores[smallest]) {
+				smallest = left;
+			}
+			if (right < size && scores[right] < scores[smallest]) {
+				smallest = right;
+			}
+			if (smallest == slot) {
+				return;
+			}
+			swap(slot, smallest);
+			slot = smallest;
+		}
+	}
+
+	private void swap(int first, int second) {
+		Object key = keys[first];
+		keys[first] = keys[second];
+		keys[second] = key;
+		long score = scores[first];
+		scores[first] = scores[second];
+		scores[second] = score;
+		slots.put(key(first), first);
+		slots.put(key(second), second);
+	}
+
+	/**
+	 * A key and its score
+	 *
+	 * @param <K>
+	 */
+	public static class Ranked<K> {
+		private final K key;
+		private final long score;
+
+		Ranked(K key, long score) {
+			this.key = key;
+			this.score = score;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public long getScore() {
+			return score;
+		}
+
+		@Override
+		public String toString() {
+			return "Ranked [key=" + key + ", score=" + score + "]";
+		}
+	}
+}
@@ -0,0 +1,365 @@
+package in.venkat.trending;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import in.venkat.catalog.CatalogCache;
+import in.venkat.catalog.CatalogSnapshot;
+import in.venkat.catalog.ShowAttribute;
+import in.venkat.dao.ShowListDao;
+import in.venkat.exceptions.DbException;
+import in.venkat.util.ConfigUtil;
+import in.venkat.util.Logger;
+
+/**
+ * The most liked movies, kept in a {@link TopK} that every like updates, so
+ * reading the trending list does not touch the database. A board is kept for
+ * the whole catalog and one for each language and each genre. The boards are
+ * seeded from the likes in the table plus the likes not yet flushed, and
+ * seeded again every trending.reseed-interval-ms to pick up likes recorded on
+ * other nodes.
+ */
+public class TrendingTracker {
+	private TrendingTracker() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	private static final int SIZE = ConfigUtil.getInt("trending.size", 50);
+	private static final long RESEED_INTERVAL = ConfigUtil.getLong("trending.reseed-interval-ms", 300000);
+	private static final ShowAttribute[] LEADERBOARDS = { ShowAttribute.LANGUAGE, ShowAttribute.GENRE };
+
+	/**
+	 * Likes are recorded under the read lock, a reseed takes the pending likes
+	 * and swaps the board under the write lock, so that every like lands either
+	 * in the pending likes it reads or on the new board, never both or neither
+	 */
+	private static final ReadWriteLock SEED_LOCK = new ReentrantReadWriteLock();
+
+	private static volatile Board board;
+
+	/**
+	 * Movies removed since the running reseed started reading the table, taken
+	 * off the new board before it is swapped in
+	 */
+	private static volatile Set<Integer> removals = ConcurrentHashMap.newKeySet();
+
+	static {
+		if (RESEED_INTERVAL > 0) {
+			ScheduledExecutorService reseeder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "trending-reseeder");
+				thread.setDaemon(true);
+				return thread;
+			});
+			reseeder.scheduleWithFixedDelay(TrendingTracker::reseedQuietly, RESEED_INTERVAL, RESEED_INTERVAL,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * This method counts one like for the movie on the board and hands it to
+	 * {@link LikeCounter} to be written to the table. When the board cannot be
+	 * seeded the like is only handed on, the next seed reads it from the table
+	 * or the pending likes.
+	 *
+	 * @param movieId
+	 */
+	public static void recordLike(int movieId) {
+		CatalogSnapshot catalog = null;
+		try {
+			getBoard();
+			catalog = CatalogCache.get();
+		} catch (DbException e) {
+			Logger.exception(e);
+		}
+		SEED_LOCK.readLock().lock();
+		try {
+			Board current = board;
+			if (current != null) {
+				current.add(movieId, 1, catalog);
+			}
+			LikeCounter.increment(movieId);
+		} finally {
+			SEED_LOCK.readLock().unlock();
+		}
+	}
+
+	/**
+	 * This method drops a deleted movie from the board and moves the next most
+	 * liked movie up in its place. The removal is also kept for a reseed that
+	 * read the movie from the table before it was deleted, so that the reseed
+	 * does not bring it back.
+	 *
+	 * @param movieId
+	 */
+	public static void remove(int movieId) {
+		SEED_LOCK.readLock().lock();
+		try {
+			removals.add(movieId);
+			Board current = board;
+			if (current != null) {
+				current.remove(movieId);
+			}
+		} finally {
+			SEED_LOCK.readLock().unlock();
+		}
+	}
+
+	/**
+	 * This method gives the movie ids with their likes, most liked first, at
+	 * most trending.size of them
+	 *
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<TopK.Ranked<Integer>> getTop() throws DbException {
+		return getBoard().topK.top();
+	}
+
+	/**
+	 * This method gives one page of liked movies ordered by likes and then id,
+	 * both descending, starting after the given (likes, id) position. The page
+	 * is picked from the like totals on the board, no query is run.
+	 *
+	 * @param afterLikes
+	 * @param afterId
+	 * @param limit
+	 * @return
+	 * @throws DbException
+	 */
+	public static List<TopK.Ranked<Integer>> getPage(long afterLikes, int afterId, int limit) throws DbException {
+		return getBoard().page(afterLikes, afterId, limit);
+	}
+
+	/**
+	 * This method gives the most liked movies whose attribute, language or
+	 * genre, has the given value, most liked first
+	 *
+	 * @param attribute
+	 * @param value
+	 * @return an empty list when no such movie has a like
+	 * @throws DbException
+	 */
+	public static List<TopK.Ranked<Integer>> getTop(ShowAttribute attribute, String value) throws DbException {
+		Map<String, TopK<Integer>> leaderboards = getBoard().leaderboards.get(attribute);
+		if (leaderboards == null) {
+			throw new IllegalArgumentException("no trending leaderboard by " + attribute);
+		}
+		TopK<Integer> leaderboard = leaderboards.get(ShowAttribute.normalize(value));
+		return leaderboard == null ? Collections.<TopK.Ranked<Integer>>emptyList() : leaderboard.top();
+	}
+
+	/**
+	 * This method gives the most movies a trending list holds
+	 *
+	 * @return
+	 */
+	public static int getSize() {
+		return SIZE;
+	}
+
+	/**
+	 * This method rebuilds the boards from the table and swaps them in. No flush
+	 * runs between reading the table and reading the pending likes, and no like
+	 * is recorded between reading the pending likes and the swap, so each like
+	 * is counted exactly once.
+	 *
+	 * @throws DbException
+	 */
+	public static void reseed() throws DbException {
+		CatalogSnapshot catalog = CatalogCache.get();
+		Board seeded = new Board();
+		synchronized (LikeCounter.FLUSH_LOCK) {
+			Set<Integer> removed = ConcurrentHashMap.newKeySet();
+			removals = removed;
+			for (Map.Entry<Integer, Integer> liked : ShowListDao.getLikedMovies().entrySet()) {
+				seeded.add(liked.getKey(), liked.getValue(), catalog);
+			}
+			SEED_LOCK.writeLock().lock();
+			try {
+				for (Map.Entry<Integer, Long> pending : LikeCounter.getPendingLikes().entrySet()) {
+					seeded.add(pending.getKey(), pending.getValue(), catalog);
+				}
+				for (Integer movieId : removed) {
+					seeded.remove(movieId);
+				}
+				board = seeded;
+			} finally {
+				SEED_LOCK.writeLock().unlock();
+			}
+		}
+	}
+
+	private static Board getBoard() throws DbException {
+		Board current = board;
+		if (current == null) {
+			synchronized (TrendingTracker.class) {
+				if (board == null) {
+					reseed();
+				}
+				current = board;
+			}
+		}
+		return current;
+	}
+
+	private static void reseedQuietly() {
+		try {
+			reseed();
+		} catch (DbException e) {
+			Logger.exception(e);
+		}
+	}
+
+	/**
+	 * Like totals of every liked movie, the top k over them and the top k of
+	 * each language and genre
+	 */
+	private static class Board {
+		private final Map<Integer, Entry> totals = new ConcurrentHashMap<>();
+		private final TopK<Integer> topK = new TopK<>(SIZE);
+		private final Map<ShowAttribute, Map<String, TopK<Integer>>> leaderboards = new EnumMap<>(
+				ShowAttribute.class);
+
+		Board() {
+			for (ShowAttribute attribute : LEADERBOARDS) {
+				leaderboards.put(attribute, new ConcurrentHashMap<>());
+			}
+		}
+
+		/**
+		 * Adds likes to the movie. Its leaderboard keys are looked up in the
+		 * catalog the first time the movie is seen, and on later likes while the
+		 * movie is not in the catalog yet.
+		 */
+		void add(int movieId, long likes, CatalogSnapshot catalog) {
+			Entry entry = totals.computeIfAbsent(movieId, id -> new Entry());
+			entry.likes.add(likes);
+			long score = entry.likes.sum();
+			if (score <= 0) {
+				return;
+			}
+			topK.offer(movieId, score);
+			String[] keys = entry.keys;
+			if (keys == null) {
+				keys = keysOf(movieId, catalog);
+				entry.keys = keys;
+			}
+			if (keys != null) {
+				for (int i = 0; i < LEADERBOARDS.length; i++) {
+					leaderboards.get(LEADERBOARDS[i]).computeIfAbsent(keys[i], key -> new TopK<>(SIZE))
+							.offer(movieId, score);
+				}
+			}
+		}
+
+		/**
+		 * Keeps the limit highest totals ranked after the position in a
+		 * min-heap, the lowest leaving when it overflows, so the totals are
+		 * walked once and only the page is sorted
+		 */
+		List<TopK.Ranked<Integer>> page(long afterLikes, int afterId, int limit) {
+			Comparator<TopK.Ranked<Integer>> order = Comparator.comparingLong(TopK.Ranked<Integer>::getScore)
+					.thenComparing(TopK.Ranked::getKey);
+			PriorityQueue<TopK.Ranked<Integer>> page = new PriorityQueue<>(limit + 1, order);
+			for (Map.Entry<Integer, Entry> total : totals.entrySet()) {
+				long score = total.getValue().likes.sum();
+				int movieId = total.getKey();
+				if (score <= 0 || score > afterLikes || (score == afterLikes && movieId >= afterId)) {
+					continue;
+				}
+				page.offer(new TopK.Ranked<>(movieId, score));
+				if (page.size() > limit) {
+					page.poll();
+				}
+			}
+			List<TopK.Ranked<Integer>> ranked = new ArrayList<>(page);
+			ranked.sort(order.reversed());
+			return ranked;
+		}
+
+		void remove(int movieId) {
+			Entry removed = totals.remove(movieId);
+			if (topK.contains(movieId)) {
+				topK.remove(movieId);
+				refill(topK, -1, null);
+			}
+			String[] keys = removed == null ? null : removed.keys;
+			if (keys != null) {
+				for (int i = 0; i < LEADERBOARDS.length; i++) {
+					TopK<Integer> leaderboard = leaderboards.get(LEADERBOARDS[i]).get(keys[i]);
+					if (leaderboard != null && leaderboard.contains(movieId)) {
+						leaderboard.remove(movieId);
+						refill(leaderboard, i, keys[i]);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Offers the most liked movie not on the board, so that a board that lost
+		 * an entry is full again without waiting for the next reseed. A
+		 * leaderboard only takes movies with its own key.
+		 */
+		private void refill(TopK<Integer> board, int leaderboard, String key) {
+			Integer best = null;
+			long bestScore = 0;
+			for (Map.Entry<Integer, Entry> total : totals.entrySet()) {
+				String[] keys = total.getValue().keys;
+				if (leaderboard >= 0 && (keys == null || !keys[leaderboard].equals(key))) {
+					continue;
+				}
+				long score = total.getValue().likes.sum();
+				if (score > bestScore && !board.contains(total.getKey())) {
+					best = total.getKey();
+					bestScore = score;
+				}
+			}
+			if (best != null) {
+				board.offer(best, bestScore);
+			}
+		}
+
+		/**
+		 * The movie's key for each of the LEADERBOARDS, read from the catalog
+		 * columns without creating a Show, or null when the movie is not in the
+		 * catalog or the catalog could not be loaded
+		 */
+		private static String[] keysOf(int movieId, CatalogSnapshot catalog) {
+			if (catalog == null) {
+				return null;
+			}
+			String[] keys = new String[LEADERBOARDS.length];
+			for (int i = 0; i < LEADERBOARDS.length; i++) {
+				keys[i] = catalog.getKey(LEADERBOARDS[i], movieId);
+				if (keys[i] == null) {
+					return null;
+				}
+			}
+			return keys;
+		}
+	}
+
+	/**
+	 * A movie's like total and its leaderboard keys, which stay as they were
+	 * when first looked up until the next reseed
+	 */
+	private static class Entry {
+		private final LongAdder likes = new LongAdder();
+		private volatile String[] keys;
+	}
+}
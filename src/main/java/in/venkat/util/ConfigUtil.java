@@ -0,0 +1,89 @@
+package in.venkat.util;
+
+public class ConfigUtil {
+	private ConfigUtil() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	/**
+	 * This method is used to read a string setting from the environment
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return
+	 */
+	public static String getString(String name, String defaultValue) {
+		String value = System.getenv(name);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		return value.trim();
+	}
+
+	/**
+	 * This method is used to read an integer setting from the environment
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return
+	 */
+	public static int getInt(String name, int defaultValue) {
+		return (int) getLong(name, defaultValue);
+	}
+
+	/**
+	 * This method is used to read a long setting from the environment, falling
+	 * back to the default when the value is missing or not a number
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return
+	 */
+	public static long getLong(String name, long defaultValue) {
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			Logger.log("invalid value for " + name + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * This method is used to read a decimal setting from the environment,
+	 * falling back to the default when the value is missing or not a number
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return
+	 */
+	public static double getDouble(String name, double defaultValue) {
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			Logger.log("invalid value for " + name + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * This method is used to read a true or false setting from the environment
+	 *
+	 * @param name
+	 * @param defaultValue
+	 * @return
+	 */
+	public static boolean getBoolean(String name, boolean defaultValue) {
+		String value = getString(name, null);
+		return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+	}
+}
@@ -0,0 +1,361 @@
+package in.venkat.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Bounded pool of physical connections for one database url. Borrowed
+ * connections are handed out as wrappers whose close() returns the connection
+ * to the pool instead of closing it. The pool's metrics are exported over JMX.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean {
+	/**
+	 * Connections returned within this window are not validated again on borrow
+	 */
+	private static final long VALIDATION_BYPASS_MILLIS = 500;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private final String name;
+	private final String url;
+	private final String username;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long acquireTimeoutMillis;
+	private final int statementCacheSize;
+	private final long leakThresholdMillis;
+
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+	private final Semaphore permits;
+	private final AtomicInteger open = new AtomicInteger();
+	private final ScheduledExecutorService housekeeper;
+
+	private final LongAdder acquireCount = new LongAdder();
+	private final LongAdder acquireNanos = new LongAdder();
+	private final AtomicLong maxAcquireNanos = new AtomicLong();
+	private final LongAdder acquireTimeouts = new LongAdder();
+	private final LongAdder closedCount = new LongAdder();
+	private final LongAdder closedLifetimeMillis = new LongAdder();
+	private final LongAdder leaksDetected = new LongAdder();
+	private final LongAdder statementHits = new LongAdder();
+	private final LongAdder statementMisses = new LongAdder();
+
+	public ConnectionPool(String name, String url, String username, String password, PoolSettings settings) {
+		this.name = name;
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.maxSize = Math.max(1, settings.getMaxSize());
+		this.minSize = Math.max(0, Math.min(settings.getMinSize(), this.maxSize));
+		this.idleTimeoutMillis = settings.getIdleTimeoutMillis();
+		this.acquireTimeoutMillis = settings.getAcquireTimeoutMillis();
+		this.statementCacheSize = settings.getStatementCacheSize();
+		this.leakThresholdMillis = settings.getLeakDetectionThresholdMillis();
+		this.permits = new Semaphore(this.maxSize, true);
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper-" + name);
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1000, idleTimeoutMillis / 4);
+		housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+		if (leakThresholdMillis > 0) {
+			long leakPeriod = Math.max(1000, leakThresholdMillis / 2);
+			housekeeper.scheduleWithFixedDelay(this::detectLeaks, leakPeriod, leakPeriod, TimeUnit.MILLISECONDS);
+		}
+		register();
+	}
+
+	/**
+	 * This method is used to borrow a connection, waiting up to the acquire
+	 * timeout when every connection is in use
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	public Connection borrow() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				acquireTimeouts.increment();
+				throw new SQLTimeoutException("timed out after " + acquireTimeoutMillis
+						+ " ms waiting for a database connection from pool " + name + " (" + inUse.size()
+						+ " in use, " + permits.getQueueLength() + " waiting)");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted while waiting for a database connection", e);
+		}
+
+		try {
+			PooledConnection pooled;
+			while ((pooled = idle.pollFirst()) != null) {
+				if (isUsable(pooled)) {
+					return checkout(pooled, start);
+				}
+				destroy(pooled);
+			}
+			return checkout(openConnection(), start);
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private Connection checkout(PooledConnection pooled, long start) {
+		pooled.markBorrowed(leakThresholdMillis > 0);
+		inUse.add(pooled);
+		long elapsed = System.nanoTime() - start;
+		acquireCount.increment();
+		acquireNanos.add(elapsed);
+		maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+		return pooled.checkout();
+	}
+
+	/**
+	 * This method takes back a connection once the borrower has closed it
+	 *
+	 * @param pooled
+	 */
+	void release(PooledConnection pooled) {
+		inUse.remove(pooled);
+		if (pooled.isLeakReported()) {
+			Logger.log("connection previously reported as leaked was returned to pool " + name + " after "
+					+ (System.currentTimeMillis() - pooled.getBorrowedAt()) + " ms");
+		}
+		try {
+			if (pooled.isBroken() || open.get() > maxSize) {
+				destroy(pooled);
+			} else {
+				pooled.reset();
+				idle.offerFirst(pooled);
+			}
+		} catch (SQLException e) {
+			Logger.exception(e);
+			destroy(pooled);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * This method closes every idle connection and stops the housekeeping thread
+	 */
+	public void shutdown() {
+		housekeeper.shutdownNow();
+		PooledConnection pooled;
+		while ((pooled = idle.pollFirst()) != null) {
+			destroy(pooled);
+		}
+	}
+
+	private PooledConnection openConnection() throws SQLException {
+		Connection physical = DriverManager.getConnection(url, username, password);
+		PooledConnection pooled;
+		try {
+			pooled = new PooledConnection(this, physical, statementCacheSize);
+		} catch (SQLException e) {
+			physical.close();
+			throw e;
+		}
+		open.incrementAndGet();
+		return pooled;
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		if (System.currentTimeMillis() - pooled.getLastReturned() < VALIDATION_BYPASS_MILLIS) {
+			return true;
+		}
+		try {
+			return pooled.getPhysical().isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void destroy(PooledConnection pooled) {
+		open.decrementAndGet();
+		closedCount.increment();
+		closedLifetimeMillis.add(System.currentTimeMillis() - pooled.getCreatedAt());
+		try {
+			pooled.getPhysical().close();
+		} catch (SQLException e) {
+			Logger.exception(e);
+		}
+	}
+
+	/**
+	 * Closes connections idle for longer than the idle timeout, oldest first, and
+	 * tops the pool back up to its minimum size
+	 */
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+		Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+		while (oldestFirst.hasNext() && open.get() > minSize) {
+			PooledConnection pooled = oldestFirst.next();
+			if (now - pooled.getLastReturned() > idleTimeoutMillis && idle.removeLastOccurrence(pooled)) {
+				destroy(pooled);
+			}
+		}
+		try {
+			while (open.get() < minSize) {
+				PooledConnection pooled = openConnection();
+				pooled.reset();
+				idle.offerLast(pooled);
+			}
+		} catch (SQLException e) {
+			Logger.exception(e);
+		}
+	}
+
+	/**
+	 * Reports every connection held longer than the leak detection threshold
+	 * together with the stack trace of the code that borrowed it
+	 */
+	private void detectLeaks() {
+		long now = System.currentTimeMillis();
+		for (PooledConnection pooled : inUse) {
+			long held = now - pooled.getBorrowedAt();
+			if (held > leakThresholdMillis && !pooled.isLeakReported()) {
+				pooled.setLeakReported(true);
+				leaksDetected.increment();
+				String message = "possible connection leak in pool " + name + ", connection held for " + held + " ms";
+				Throwable borrowStack = pooled.getBorrowStack();
+				if (borrowStack != null) {
+					StringWriter trace = new StringWriter();
+					borrowStack.printStackTrace(new PrintWriter(trace));
+					message += ", borrowed at:" + System.lineSeparator() + trace;
+				}
+				Logger.log(message);
+			}
+		}
+	}
+
+	private void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("in.venkat:type=ConnectionPool,name=" + ObjectName.quote(name)));
+		} catch (JMException e) {
+			Logger.exception(e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	@Override
+	public int getOpenConnections() {
+		return open.get();
+	}
+
+	@Override
+	public int getIdleConnections() {
+		return idle.size();
+	}
+
+	@Override
+	public int getActiveConnections() {
+		return inUse.size();
+	}
+
+	@Override
+	public int getPendingThreads() {
+		return permits.getQueueLength();
+	}
+
+	@Override
+	public long getAcquireCount() {
+		return acquireCount.sum();
+	}
+
+	@Override
+	public double getAverageAcquireMillis() {
+		long count = acquireCount.sum();
+		return count == 0 ? 0 : acquireNanos.sum() / 1e6 / count;
+	}
+
+	@Override
+	public double getMaxAcquireMillis() {
+		return maxAcquireNanos.get() / 1e6;
+	}
+
+	@Override
+	public long getAcquireTimeouts() {
+		return acquireTimeouts.sum();
+	}
+
+	@Override
+	public long getClosedConnections() {
+		return closedCount.sum();
+	}
+
+	@Override
+	public double getAverageConnectionLifetimeMillis() {
+		long count = closedCount.sum();
+		return count == 0 ? 0 : (double) closedLifetimeMillis.sum() / count;
+	}
+
+	@Override
+	public long getLeaksDetected() {
+		return leaksDetected.sum();
+	}
+
+	@Override
+	public double getStatementCacheHitRatio() {
+		long hits = statementHits.sum();
+		long total = hits + statementMisses.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Statement cache hits and misses of this pool's connections, counted by
+	 * their {@link StatementCache}s
+	 */
+	LongAdder getStatementHits() {
+		return statementHits;
+	}
+
+	LongAdder getStatementMisses() {
+		return statementMisses;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool [name=" + name + ", active=" + getActiveConnections() + ", idle="
+				+ getIdleConnections() + ", pending=" + getPendingThreads() + ", open=" + getOpenConnections()
+				+ ", averageAcquireMillis=" + getAverageAcquireMillis() + ", leaksDetected=" + getLeaksDetected()
+				+ "]";
+	}
+}
@@ -0,0 +1,33 @@
+package in.venkat.util;
+
+/**
+ * Connection pool metrics exported over JMX as
+ * in.venkat:type=ConnectionPool,name=&lt;pool name&gt;
+ */
+public interface ConnectionPoolMXBean {
+	int getActiveConnections();
+
+	int getIdleConnections();
+
+	int getPendingThreads();
+
+	int getOpenConnections();
+
+	int getMaxSize();
+
+	long getAcquireCount();
+
+	double getAverageAcquireMillis();
+
+	double getMaxAcquireMillis();
+
+	long getAcquireTimeouts();
+
+	long getClosedConnections();
+
+	double getAverageConnectionLifetimeMillis();
+
+	long getLeaksDetected();
+
+	double getStatementCacheHitRatio();
+}
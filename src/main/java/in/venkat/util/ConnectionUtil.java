@@ -4,7 +4,13 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConnectionUtil {
 	private ConnectionUtil() {
@@ -18,29 +24,259 @@ public class ConnectionUtil {
 	private static String username = System.getenv("spring.datasource.username");
 	private static String password = System.getenv("spring.datasource.password");
 
+	private static final PoolSettings POOL_SETTINGS = new PoolSettings();
+	private static final PoolSettings REPLICA_POOL_SETTINGS = new PoolSettings();
+
+	static {
+		POOL_SETTINGS.setMinSize(ConfigUtil.getInt("spring.datasource.hikari.minimum-idle", 2));
+		POOL_SETTINGS.setMaxSize(ConfigUtil.getInt("spring.datasource.hikari.maximum-pool-size", 10));
+		POOL_SETTINGS.setIdleTimeoutMillis(ConfigUtil.getLong("spring.datasource.hikari.idle-timeout", 600000));
+		POOL_SETTINGS.setAcquireTimeoutMillis(ConfigUtil.getLong("spring.datasource.hikari.connection-timeout", 30000));
+		POOL_SETTINGS.setStatementCacheSize(ConfigUtil.getInt("spring.datasource.statement-cache-size", 64));
+		POOL_SETTINGS.setLeakDetectionThresholdMillis(
+				ConfigUtil.getLong("spring.datasource.hikari.leak-detection-threshold", 0));
+		REPLICA_POOL_SETTINGS.setMinSize(POOL_SETTINGS.getMinSize());
+		REPLICA_POOL_SETTINGS.setMaxSize(POOL_SETTINGS.getMaxSize());
+		REPLICA_POOL_SETTINGS.setIdleTimeoutMillis(POOL_SETTINGS.getIdleTimeoutMillis());
+		REPLICA_POOL_SETTINGS.setAcquireTimeoutMillis(
+				ConfigUtil.getLong("spring.datasource.replica-connection-timeout", 250));
+		REPLICA_POOL_SETTINGS.setStatementCacheSize(POOL_SETTINGS.getStatementCacheSize());
+		REPLICA_POOL_SETTINGS.setLeakDetectionThresholdMillis(POOL_SETTINGS.getLeakDetectionThresholdMillis());
+	}
+
+	private static final int FETCH_SIZE = ConfigUtil.getInt("spring.datasource.fetch-size", 500);
+
+	private static final String REPLICA_URLS = ConfigUtil.getString("spring.datasource.replica-urls", "");
+	private static final long REPLICA_STICKINESS = ConfigUtil.getLong("spring.datasource.replica-stickiness-ms",
+			5000);
+	private static final long REPLICA_RETRY = ConfigUtil.getLong("spring.datasource.replica-retry-ms", 30000);
+	/**
+	 * Expired write times are dropped once every this many writes
+	 */
+	private static final int PRUNE_INTERVAL = 1024;
+
+	private static ConnectionPool pool;
+	private static volatile List<ConnectionPool> replicaPools;
+	private static final AtomicInteger NEXT_REPLICA = new AtomicInteger();
+	private static final Map<ConnectionPool, Long> REPLICA_DOWN_UNTIL = new ConcurrentHashMap<>();
+	private static final ThreadLocal<String> CALLER = new ThreadLocal<>();
+	private static final Map<String, Long> LAST_WRITE = new ConcurrentHashMap<>();
+	private static final AtomicInteger WRITES = new AtomicInteger();
+
 	/**
-	 * This method creates a database connection.
-	 * 
+	 * This method borrows a database connection from the pool. Closing the
+	 * connection returns it to the pool. Inside a {@link TransactionManager}
+	 * scope the connection bound to the current thread is returned instead.
+	 *
 	 * @return
-	 * @throws ClassNotFoundException
 	 * @throws SQLException
 	 */
 	public static Connection getConnection() throws SQLException {
+		Connection bound = TransactionManager.getBoundConnection();
+		if (bound != null) {
+			return bound;
+		}
+		return getPool().borrow();
+	}
 
+	/**
+	 * This method borrows a connection for a read-only query. Reads go to one of
+	 * the replicas listed in spring.datasource.replica-urls, round robin, and stay
+	 * on the primary when no replica is configured, inside a transaction scope, or
+	 * when the caller bound to this thread wrote within the stickiness window so
+	 * that it reads its own writes. Reads that check identity or credentials
+	 * must use {@link #getConnection()} instead, a caller may not be bound yet.
+	 * A replica that cannot hand out a connection within
+	 * spring.datasource.replica-connection-timeout because it is busy only
+	 * sends that one read to the primary. A replica that cannot be reached is
+	 * skipped for spring.datasource.replica-retry-ms.
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	public static Connection getReadConnection() throws SQLException {
+		Connection bound = TransactionManager.getBoundConnection();
+		if (bound != null) {
+			return bound;
+		}
+		List<ConnectionPool> replicas = getReplicaPools();
+		if (replicas.isEmpty() || hasRecentWrite()) {
+			return getPool().borrow();
+		}
+		ConnectionPool replica = nextHealthyReplica(replicas);
+		if (replica == null) {
+			return getPool().borrow();
+		}
 		try {
-			Class.forName(driverClass);
-		} catch (ClassNotFoundException e) {
-			Logger.log(e.getMessage());
+			return replica.borrow();
+		} catch (SQLTimeoutException e) {
+			return getPool().borrow();
+		} catch (SQLException e) {
+			if (isConnectionFailure(e)) {
+				REPLICA_DOWN_UNTIL.put(replica, System.currentTimeMillis() + REPLICA_RETRY);
+				Logger.log("replica " + replica.getUrl() + " unreachable, reading from primary for the next "
+						+ REPLICA_RETRY + " ms");
+			}
+			Logger.exception(e);
+			return getPool().borrow();
 		}
+	}
 
+	/**
+	 * This method tells a replica that cannot be reached, SQL state class 08,
+	 * from one that is only busy or rejected a single request
+	 *
+	 * @param e
+	 * @return
+	 */
+	private static boolean isConnectionFailure(SQLException e) {
+		String state = e.getSQLState();
+		return state != null && state.startsWith("08");
+	}
+
+	/**
+	 * This method binds the user or session making the current request to this
+	 * thread, so that its reads stay on the primary for a while after its own
+	 * writes. Reads made with no caller bound always go to a replica.
+	 *
+	 * @param caller
+	 */
+	public static void setCaller(String caller) {
+		CALLER.set(caller);
+	}
+
+	/**
+	 * This method unbinds the caller once the request is done, before the thread
+	 * serves somebody else
+	 */
+	public static void clearCaller() {
+		CALLER.remove();
+	}
+
+	/**
+	 * This method records that the caller bound to this thread has just written
+	 * to the primary. It is called when a write statement runs and when a
+	 * transaction commits, not when a connection is borrowed.
+	 */
+	static void markWrite() {
+		String caller = CALLER.get();
+		if (caller == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		LAST_WRITE.put(caller, now);
+		if (WRITES.incrementAndGet() % PRUNE_INTERVAL == 0) {
+			LAST_WRITE.values().removeIf(writtenAt -> now - writtenAt >= REPLICA_STICKINESS);
+		}
+	}
+
+	private static boolean hasRecentWrite() {
+		String caller = CALLER.get();
+		if (caller == null) {
+			return false;
+		}
+		Long writtenAt = LAST_WRITE.get(caller);
+		return writtenAt != null && System.currentTimeMillis() - writtenAt < REPLICA_STICKINESS;
+	}
+
+	/**
+	 * This method picks the next replica round robin, passing over replicas that
+	 * failed within the retry window
+	 *
+	 * @param replicas
+	 * @return the replica, or null when every replica is down
+	 */
+	private static ConnectionPool nextHealthyReplica(List<ConnectionPool> replicas) {
+		long now = System.currentTimeMillis();
+		int first = NEXT_REPLICA.getAndIncrement();
+		for (int i = 0; i < replicas.size(); i++) {
+			ConnectionPool replica = replicas.get(Math.floorMod(first + i, replicas.size()));
+			Long downUntil = REPLICA_DOWN_UNTIL.get(replica);
+			if (downUntil == null || now >= downUntil) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method opens a connection to the primary outside the pool, for a
+	 * session that stays open for the life of the process such as a LISTEN. The
+	 * caller closes it.
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	public static Connection openDedicatedConnection() throws SQLException {
+		getPool();
 		return DriverManager.getConnection(url, username, password);
+	}
+
+	/**
+	 * This method is used to get the primary and replica pools, for example to
+	 * log their metrics
+	 *
+	 * @return
+	 */
+	public static List<ConnectionPool> getPools() {
+		List<ConnectionPool> pools = new ArrayList<>();
+		pools.add(getPool());
+		pools.addAll(getReplicaPools());
+		return pools;
+	}
+
+	/**
+	 * This method gives the number of rows fetched per round trip when a query
+	 * streams its result set
+	 *
+	 * @return
+	 */
+	public static int getFetchSize() {
+		return FETCH_SIZE;
+	}
+
+	/**
+	 * This method creates the pool on first use so the driver is loaded only once
+	 *
+	 * @return
+	 */
+	private static synchronized ConnectionPool getPool() {
+		if (pool == null) {
+			try {
+				Class.forName(driverClass);
+			} catch (ClassNotFoundException e) {
+				Logger.log(e.getMessage());
+			}
+			pool = new ConnectionPool("primary", url, username, password, POOL_SETTINGS);
+		}
+		return pool;
+	}
 
+	private static List<ConnectionPool> getReplicaPools() {
+		List<ConnectionPool> pools = replicaPools;
+		return pools != null ? pools : createReplicaPools();
+	}
+
+	private static synchronized List<ConnectionPool> createReplicaPools() {
+		if (replicaPools == null) {
+			getPool();
+			List<ConnectionPool> pools = new ArrayList<>();
+			for (String replicaUrl : REPLICA_URLS.split(",")) {
+				if (!replicaUrl.trim().isEmpty()) {
+					pools.add(new ConnectionPool("replica-" + pools.size(), replicaUrl.trim(), username, password,
+							REPLICA_POOL_SETTINGS));
+				}
+			}
+			replicaPools = pools;
+		}
+		return replicaPools;
 	}
 
 	/**
 	 * This method is used to close the connection of ResultSet connection and
-	 * prepared statement Method overloading
-	 * 
+	 * prepared statement Method overloading. The connection goes back to the
+	 * pool.
+	 *
 	 * @param con
 	 */
 	public static void close(ResultSet rs, Statement statement, Connection con) {
@@ -61,8 +297,8 @@ public class ConnectionUtil {
 	}
 
 	/**
-	 * This method closes the connections for statement and connection.
-	 * 
+	 * This method closes the statement and returns the connection to the pool.
+	 *
 	 * @param statement
 	 * @param con
 	 */
@@ -78,4 +314,4 @@ public class ConnectionUtil {
 			e.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package in.venkat.util;
+
+/**
+ * Sizing and timeout settings shared by the primary and replica pools
+ */
+public class PoolSettings {
+	private int minSize;
+	private int maxSize;
+	private long idleTimeoutMillis;
+	private long acquireTimeoutMillis;
+	private int statementCacheSize;
+	private long leakDetectionThresholdMillis;
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public void setMinSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Connections held longer than this are reported with the stack trace of the
+	 * borrower, 0 turns leak detection off
+	 */
+	public long getLeakDetectionThresholdMillis() {
+		return leakDetectionThresholdMillis;
+	}
+
+	public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+		this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolSettings [minSize=" + minSize + ", maxSize=" + maxSize + ", idleTimeoutMillis=" + idleTimeoutMillis
+				+ ", acquireTimeoutMillis=" + acquireTimeoutMillis + ", statementCacheSize=" + statementCacheSize
+				+ ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis + "]";
+	}
+
+}
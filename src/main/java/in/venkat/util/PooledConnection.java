@@ -0,0 +1,193 @@
+package in.venkat.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}. Each checkout hands
+ * out a fresh wrapper, so closing a stale wrapper twice can never return the
+ * connection to the pool while somebody else is using it.
+ */
+class PooledConnection {
+	/**
+	 * SQL state class for connection exceptions, the connection is discarded
+	 * instead of being reused
+	 */
+	private static final String CONNECTION_ERROR_CLASS = "08";
+	/**
+	 * Setters that change the session for whoever borrows the connection next
+	 */
+	private static final Set<String> SESSION_SETTERS = new HashSet<>(
+			Arrays.asList("setReadOnly", "setTransactionIsolation", "setCatalog", "setSchema"));
+
+	private final ConnectionPool pool;
+	private final Connection physical;
+	private final StatementCache statementCache;
+	private final long createdAt = System.currentTimeMillis();
+	private volatile long lastReturned = createdAt;
+	private volatile long borrowedAt;
+	private volatile Throwable borrowStack;
+	private volatile boolean leakReported;
+	private volatile boolean broken;
+	private final boolean defaultReadOnly;
+	private final int defaultIsolation;
+	private final String defaultCatalog;
+	private final String defaultSchema;
+	private volatile boolean sessionChanged;
+
+	PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) throws SQLException {
+		this.pool = pool;
+		this.physical = physical;
+		this.statementCache = new StatementCache(physical, pool.getStatementHits(), pool.getStatementMisses(),
+				statementCacheSize);
+		this.defaultReadOnly = physical.isReadOnly();
+		this.defaultIsolation = physical.getTransactionIsolation();
+		this.defaultCatalog = physical.getCatalog();
+		this.defaultSchema = physical.getSchema();
+	}
+
+	Connection checkout() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Handle());
+	}
+
+	/**
+	 * This method puts the connection back in autocommit mode and, when the
+	 * borrower changed them, restores the read-only flag, isolation level,
+	 * catalog and schema the connection was opened with, so that nothing leaks
+	 * to the next borrower
+	 *
+	 * @throws SQLException
+	 */
+	void reset() throws SQLException {
+		if (!physical.getAutoCommit()) {
+			physical.rollback();
+			physical.setAutoCommit(true);
+		}
+		if (sessionChanged) {
+			if (physical.isReadOnly() != defaultReadOnly) {
+				physical.setReadOnly(defaultReadOnly);
+			}
+			if (physical.getTransactionIsolation() != defaultIsolation) {
+				physical.setTransactionIsolation(defaultIsolation);
+			}
+			if (defaultCatalog != null && !defaultCatalog.equals(physical.getCatalog())) {
+				physical.setCatalog(defaultCatalog);
+			}
+			if (defaultSchema != null && !defaultSchema.equals(physical.getSchema())) {
+				physical.setSchema(defaultSchema);
+			}
+			sessionChanged = false;
+		}
+		physical.clearWarnings();
+		lastReturned = System.currentTimeMillis();
+	}
+
+	/**
+	 * This method records when and, for leak detection, from where the
+	 * connection was borrowed
+	 *
+	 * @param captureStack
+	 */
+	void markBorrowed(boolean captureStack) {
+		borrowedAt = System.currentTimeMillis();
+		borrowStack = captureStack ? new Throwable("connection borrowed here") : null;
+		leakReported = false;
+	}
+
+	Connection getPhysical() {
+		return physical;
+	}
+
+	long getLastReturned() {
+		return lastReturned;
+	}
+
+	long getCreatedAt() {
+		return createdAt;
+	}
+
+	long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	Throwable getBorrowStack() {
+		return borrowStack;
+	}
+
+	boolean isLeakReported() {
+		return leakReported;
+	}
+
+	void setLeakReported(boolean leakReported) {
+		this.leakReported = leakReported;
+	}
+
+	boolean isBroken() {
+		return broken;
+	}
+
+	private void markBrokenIfFatal(Throwable cause) {
+		if (cause instanceof SQLException) {
+			String state = ((SQLException) cause).getSQLState();
+			if (state != null && state.startsWith(CONNECTION_ERROR_CLASS)) {
+				broken = true;
+			}
+		}
+	}
+
+	private class Handle implements InvocationHandler {
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				if (!closed) {
+					closed = true;
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			}
+			if ("isClosed".equals(name)) {
+				return closed || physical.isClosed();
+			}
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			if (closed) {
+				throw new SQLException("connection has already been returned to the pool");
+			}
+			try {
+				if ("prepareStatement".equals(name) && args.length == 1) {
+					return statementCache.prepare((String) args[0], (Connection) proxy);
+				}
+				if ("prepareStatement".equals(name)) {
+					return StatementCache.uncached((String) args[0], (PreparedStatement) method.invoke(physical, args),
+							(Connection) proxy);
+				}
+				if (SESSION_SETTERS.contains(name)) {
+					sessionChanged = true;
+				}
+				return method.invoke(physical, args);
+			} catch (InvocationTargetException e) {
+				markBrokenIfFatal(e.getCause());
+				throw e.getCause();
+			} catch (SQLException e) {
+				markBrokenIfFatal(e);
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package in.venkat.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Execution count and latency of every statement run through a pooled
+ * connection, keyed by SQL text
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+	private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+					new ObjectName("in.venkat:type=QueryMetrics"));
+		} catch (JMException e) {
+			Logger.exception(e);
+		}
+	}
+
+	private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+	private QueryMetrics() {
+		/**
+		 * Single instance registered with the platform MBean server
+		 */
+	}
+
+	public static QueryMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * This method records one execution of the sql
+	 *
+	 * @param sql
+	 * @param elapsedNanos
+	 */
+	static void record(String sql, long elapsedNanos) {
+		INSTANCE.timings.computeIfAbsent(sql, key -> new Timing()).add(elapsedNanos);
+	}
+
+	@Override
+	public Map<String, Long> getExecutionCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		timings.forEach((sql, timing) -> counts.put(sql, timing.count.sum()));
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getAverageMillis() {
+		Map<String, Double> averages = new TreeMap<>();
+		timings.forEach((sql, timing) -> {
+			long count = timing.count.sum();
+			averages.put(sql, count == 0 ? 0 : timing.totalNanos.sum() / 1e6 / count);
+		});
+		return averages;
+	}
+
+	@Override
+	public Map<String, Double> getMaxMillis() {
+		Map<String, Double> maximums = new TreeMap<>();
+		timings.forEach((sql, timing) -> maximums.put(sql, timing.maxNanos.get() / 1e6));
+		return maximums;
+	}
+
+	@Override
+	public void reset() {
+		timings.clear();
+	}
+
+	private static class Timing {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void add(long elapsedNanos) {
+			count.increment();
+			totalNanos.add(elapsedNanos);
+			maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+		}
+	}
+}
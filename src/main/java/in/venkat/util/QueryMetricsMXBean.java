@@ -0,0 +1,17 @@
+package in.venkat.util;
+
+import java.util.Map;
+
+/**
+ * DAO statement latency exported over JMX as in.venkat:type=QueryMetrics, keyed
+ * by SQL text
+ */
+public interface QueryMetricsMXBean {
+	Map<String, Long> getExecutionCounts();
+
+	Map<String, Double> getAverageMillis();
+
+	Map<String, Double> getMaxMillis();
+
+	void reset();
+}
@@ -0,0 +1,234 @@
+package in.venkat.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-connection LRU cache of prepared statements keyed by SQL text. Closing a
+ * cached statement clears its parameters and keeps it for the next caller that
+ * prepares the same SQL on the same pooled connection. Hits and misses are
+ * counted in the owning pool's counters.
+ */
+public class StatementCache {
+	private final Connection physical;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final Map<String, CachedStatement> entries;
+
+	StatementCache(Connection physical, LongAdder hits, LongAdder misses, int maxSize) {
+		this.physical = physical;
+		this.hits = hits;
+		this.misses = misses;
+		this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= maxSize) {
+					return false;
+				}
+				eldest.getValue().evict();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * This method returns a cached statement for the sql, preparing a new one on
+	 * a miss. A statement that is still open elsewhere is not shared, the caller
+	 * gets a plain uncached statement instead.
+	 *
+	 * @param sql
+	 * @param handle the pooled connection wrapper returned by getConnection()
+	 * @return
+	 * @throws SQLException
+	 */
+	PreparedStatement prepare(String sql, Connection handle) throws SQLException {
+		CachedStatement entry = entries.get(sql);
+		if (entry != null && entry.inUse) {
+			misses.increment();
+			return uncached(sql, physical.prepareStatement(sql), handle);
+		}
+		if (entry == null) {
+			misses.increment();
+			entry = new CachedStatement(sql, physical.prepareStatement(sql));
+			entries.put(sql, entry);
+		} else {
+			hits.increment();
+		}
+		entry.inUse = true;
+		return entry.lease(handle);
+	}
+
+	/**
+	 * This method wraps a statement kept out of the cache so that its executions
+	 * are timed in {@link QueryMetrics} and writes are recorded for the current
+	 * caller, like a cached statement. Its getConnection() gives the pooled
+	 * wrapper, so closing that connection returns it to the pool.
+	 *
+	 * @param sql
+	 * @param statement
+	 * @param handle    the pooled connection wrapper the statement was prepared on
+	 * @return
+	 */
+	static PreparedStatement uncached(String sql, PreparedStatement statement, Connection handle) {
+		boolean query = isQuery(sql);
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if ("getConnection".equals(method.getName())) {
+						return handle;
+					}
+					boolean execute = method.getName().startsWith("execute");
+					long start = execute ? System.nanoTime() : 0;
+					try {
+						Object result = method.invoke(statement, args);
+						if (execute && !query) {
+							ConnectionUtil.markWrite();
+						}
+						return result;
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					} finally {
+						if (execute) {
+							QueryMetrics.record(sql, System.nanoTime() - start);
+						}
+					}
+				});
+	}
+
+	/**
+	 * This method is used to tell a read from a write by the first keyword of the
+	 * sql
+	 *
+	 * @param sql
+	 * @return
+	 */
+	static boolean isQuery(String sql) {
+		int start = 0;
+		while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+			start++;
+		}
+		return sql.regionMatches(true, start, "select", 0, 6) || sql.regionMatches(true, start, "with", 0, 4);
+	}
+
+	private class CachedStatement {
+		private final String sql;
+		private final PreparedStatement statement;
+		private final boolean query;
+		private boolean inUse;
+		private boolean evicted;
+
+		CachedStatement(String sql, PreparedStatement statement) {
+			this.sql = sql;
+			this.statement = statement;
+			this.query = isQuery(sql);
+		}
+
+		PreparedStatement lease(Connection handle) {
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new Lease(this, handle));
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		/**
+		 * Resets the statement for the next caller. A statement that cannot be reset
+		 * is dropped from the cache rather than failing the caller's close.
+		 */
+		void giveBack() {
+			inUse = false;
+			if (evicted) {
+				closeQuietly();
+				return;
+			}
+			try {
+				ResultSet open = statement.getResultSet();
+				if (open != null) {
+					open.close();
+				}
+				statement.clearParameters();
+				if (statement.getFetchSize() != 0) {
+					statement.setFetchSize(0);
+				}
+			} catch (SQLException e) {
+				entries.remove(sql, this);
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				Logger.exception(e);
+			}
+		}
+	}
+
+	private static class Lease implements InvocationHandler {
+		private final CachedStatement entry;
+		private final Connection handle;
+		private boolean closed;
+
+		Lease(CachedStatement entry, Connection handle) {
+			this.entry = entry;
+			this.handle = handle;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				if (!closed) {
+					closed = true;
+					entry.giveBack();
+				}
+				return null;
+			}
+			if ("isClosed".equals(name)) {
+				return closed;
+			}
+			if ("getConnection".equals(name)) {
+				return handle;
+			}
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			if (closed) {
+				throw new SQLException("statement is closed");
+			}
+			boolean execute = name.startsWith("execute");
+			long start = execute ? System.nanoTime() : 0;
+			try {
+				Object result = method.invoke(entry.statement, args);
+				if (execute && !entry.query) {
+					ConnectionUtil.markWrite();
+				}
+				return result;
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				if (execute) {
+					QueryMetrics.record(entry.sql, System.nanoTime() - start);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package in.venkat.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.BitSet;
+
+import in.venkat.exceptions.DbException;
+
+/**
+ * Binds one pooled connection to the current thread so that every DAO call
+ * between begin() and end() runs on it and commits once. Scopes nest, only the
+ * outermost commit() reaches the database. An inner scope that ends without
+ * committing marks the whole transaction rollback only, so the outer commit()
+ * fails instead of saving half of the work.
+ *
+ * <pre>
+ * TransactionManager.begin();
+ * try {
+ * 	...
+ * 	TransactionManager.commit();
+ * } finally {
+ * 	TransactionManager.end();
+ * }
+ * </pre>
+ */
+public class TransactionManager {
+	private TransactionManager() {
+		/**
+		 * Adding a private constructor
+		 */
+	}
+
+	private static final String DB_ERROR_STATUS = "unable to connect to data base";
+	private static final String ROLLBACK_ONLY = "transaction is marked rollback only";
+	private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * This method starts a transaction scope, or joins the one already open on
+	 * this thread
+	 *
+	 * @throws DbException
+	 */
+	public static void begin() throws DbException {
+		Scope scope = CURRENT.get();
+		if (scope != null) {
+			scope.depth++;
+			return;
+		}
+		Connection connection = null;
+		try {
+			connection = ConnectionUtil.getConnection();
+			connection.setAutoCommit(false);
+			CURRENT.set(new Scope(connection));
+		} catch (SQLException e) {
+			Logger.exception(e);
+			ConnectionUtil.close(null, connection);
+			throw new DbException(e, DB_ERROR_STATUS);
+		}
+	}
+
+	/**
+	 * This method commits the work done in the scope. Inside a nested scope it
+	 * only records that the inner block finished. It fails when an inner scope
+	 * ended without committing.
+	 *
+	 * @throws DbException
+	 */
+	public static void commit() throws DbException {
+		Scope scope = CURRENT.get();
+		if (scope == null) {
+			throw new IllegalStateException("no transaction in progress");
+		}
+		if (scope.rollbackOnly) {
+			throw new DbException(ROLLBACK_ONLY);
+		}
+		if (scope.depth > 1) {
+			scope.committedLevels.set(scope.depth);
+			return;
+		}
+		try {
+			scope.connection.commit();
+			scope.committed = true;
+			ConnectionUtil.markWrite();
+		} catch (SQLException e) {
+			Logger.exception(e);
+			throw new DbException(e, DB_ERROR_STATUS);
+		}
+	}
+
+	/**
+	 * This method closes the scope. An inner end() without a commit() marks the
+	 * transaction rollback only. The outermost end() rolls back anything not
+	 * committed and returns the connection to the pool.
+	 */
+	public static void end() {
+		Scope scope = CURRENT.get();
+		if (scope == null) {
+			return;
+		}
+		if (scope.depth > 1) {
+			if (!scope.committedLevels.get(scope.depth)) {
+				scope.rollbackOnly = true;
+			}
+			scope.committedLevels.clear(scope.depth);
+			scope.depth--;
+			return;
+		}
+		CURRENT.remove();
+		try {
+			if (!scope.committed) {
+				scope.connection.rollback();
+			}
+		} catch (SQLException e) {
+			Logger.exception(e);
+		} finally {
+			ConnectionUtil.close(null, scope.connection);
+		}
+	}
+
+	/**
+	 * This method is used to check whether the current thread is inside a
+	 * transaction scope
+	 *
+	 * @return
+	 */
+	public static boolean isActive() {
+		return CURRENT.get() != null;
+	}
+
+	/**
+	 * This method returns the connection bound to the current thread, wrapped so
+	 * that the DAO's own close() leaves it open, or null outside a scope
+	 *
+	 * @return
+	 */
+	static Connection getBoundConnection() {
+		Scope scope = CURRENT.get();
+		return scope == null ? null : scope.shared;
+	}
+
+	private static class Scope {
+		private final Connection connection;
+		private final Connection shared;
+		private final BitSet committedLevels = new BitSet();
+		private int depth = 1;
+		private boolean committed;
+		private boolean rollbackOnly;
+
+		Scope(Connection connection) {
+			this.connection = connection;
+			this.shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						if ("close".equals(method.getName())) {
+							return null;
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+	}
+}
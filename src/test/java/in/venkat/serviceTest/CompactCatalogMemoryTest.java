@@ -0,0 +1,73 @@
+package in.venkat.serviceTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import in.venkat.catalog.CatalogSnapshot;
+import in.venkat.catalog.CompactCatalog;
+import in.venkat.model.Show;
+import in.venkat.util.Logger;
+
+public class CompactCatalogMemoryTest {
+
+	private static final String[] GENRES = { "action", "comedy", "drama", "thriller", "kids", "adventure" };
+	private static final String[] LANGUAGES = { "tamil", "english", "hindi", "telugu", "malayalam" };
+	private static final String[] CATEGORIES = { "movie", "series", "documentary" };
+	private static final String[] MEMBERSHIPS = { "prime", "non prime" };
+	private static final String[] GRADES = { "U", "V", "A" };
+	private static final String[] STATUSES = { "active", "inactive" };
+
+	public static void main(String[] args) {
+		/**
+		 * Compares the retained heap of the catalog held as a list of shows, as a
+		 * compact catalog alone and as a whole catalog snapshot with every index.
+		 * Every row gets its own string copies, as rows read through JDBC do.
+		 */
+		int titles = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		long before = usedHeap();
+		List<Show> list = new ArrayList<>();
+		for (int i = 0; i < titles; i++) {
+			list.add(syntheticShow(i));
+		}
+		long listBytes = usedHeap() - before;
+		Logger.log("List<Show>: " + listBytes / titles + " bytes per title (" + list.size() + " titles)");
+		list = null;
+
+		before = usedHeap();
+		CompactCatalog.Builder builder = new CompactCatalog.Builder();
+		for (int i = 0; i < titles; i++) {
+			builder.add(syntheticShow(i));
+		}
+		CompactCatalog catalog = builder.build();
+		builder = null;
+		long compactBytes = usedHeap() - before;
+		Logger.log("CompactCatalog: " + compactBytes / titles + " bytes per title (" + catalog.size() + " titles)");
+
+		before = usedHeap();
+		CatalogSnapshot snapshot = CatalogSnapshot.of(catalog);
+		long snapshotBytes = compactBytes + usedHeap() - before;
+		Logger.log("CatalogSnapshot with indexes: " + snapshotBytes / titles + " bytes per title (" + snapshot.size()
+				+ " titles)");
+		Logger.log("saving against List<Show>: " + (100 - snapshotBytes * 100 / listBytes) + "%");
+	}
+
+	private static Show syntheticShow(int i) {
+		return new Show(i + 1, copy(GENRES[i % GENRES.length]), "Title " + i, 1960 + i % 60,
+				copy(LANGUAGES[i % LANGUAGES.length]), copy(CATEGORIES[i % CATEGORIES.length]),
+				copy(MEMBERSHIPS[i % MEMBERSHIPS.length]), copy(GRADES[i % GRADES.length]),
+				copy(STATUSES[i % STATUSES.length]), i % 1000);
+	}
+
+	private static String copy(String value) {
+		return new String(value.toCharArray());
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -4,6 +4,7 @@ import java.sql.Connection;
 
 import in.venkat.util.ConnectionUtil;
 import in.venkat.util.Logger;
+import in.venkat.util.QueryMetrics;
 
 public class ConnectionUtilTest {
 
@@ -11,6 +12,16 @@ public class ConnectionUtilTest {
 		try {
 			Connection con = ConnectionUtil.getConnection();
 			Logger.log("Connection Status " + (con != null ));
+			ConnectionUtil.close(null, con);
+			/**
+			 * The second borrow should reuse the pooled connection
+			 */
+			long start = System.nanoTime();
+			Connection reused = ConnectionUtil.getConnection();
+			Logger.log("Pooled borrow took " + (System.nanoTime() - start) / 1000 + " micro seconds");
+			ConnectionUtil.close(null, reused);
+			Logger.log(ConnectionUtil.getPools());
+			Logger.log(QueryMetrics.getInstance().getAverageMillis());
 		} catch (Exception e) {
 			e.printStackTrace();
 
@@ -0,0 +1,51 @@
+package in.venkat.serviceTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import in.venkat.trending.CountMinSketch;
+import in.venkat.util.Logger;
+
+public class CountMinSketchTest {
+
+	public static void main(String[] args) throws InterruptedException {
+		/**
+		 * Several threads add to the same few keys at once. A count-min sketch
+		 * may overestimate but must never give less than the true count, so any
+		 * increment lost to a race shows up as an estimate below it.
+		 */
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int addsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		int keys = 64;
+		CountMinSketch sketch = new CountMinSketch(0.01, 0.01);
+		AtomicLongArray trueCounts = new AtomicLongArray(keys);
+
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int seed = t;
+			Thread worker = new Thread(() -> {
+				for (int i = 0; i < addsPerThread; i++) {
+					int key = (i * 31 + seed) % keys;
+					sketch.add(key, 1);
+					trueCounts.incrementAndGet(key);
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		int below = 0;
+		for (int key = 0; key < keys; key++) {
+			if (sketch.estimate(key) < trueCounts.get(key)) {
+				below++;
+				Logger.log("key " + key + ": estimate " + sketch.estimate(key) + " below true count "
+						+ trueCounts.get(key));
+			}
+		}
+		Logger.log(below == 0 ? "every estimate is at least the true count" : below + " keys lost increments");
+	}
+}
@@ -0,0 +1,36 @@
+package in.venkat.serviceTest;
+
+import java.util.List;
+
+import in.venkat.exceptions.DbException;
+import in.venkat.exceptions.EmptyFieldException;
+import in.venkat.exceptions.InvalidDetailsException;
+import in.venkat.exceptions.InvalidNameException;
+import in.venkat.model.Show;
+import in.venkat.service.ShowService;
+import in.venkat.util.Logger;
+
+public class FuzzySearchTest {
+
+	public static void main(String[] args) {
+
+		String movieName = "fast and furius";
+		int maxEdits = 2;
+		fuzzySearchByMovieName(movieName, maxEdits);
+	}
+
+	public static void fuzzySearchByMovieName(String movieName, int maxEdits) {
+		List<Show> movieList;
+		try {
+			movieList = ShowService.fuzzySearchByMovieName(movieName, maxEdits);
+			if (!movieList.isEmpty()) {
+				Logger.log(movieList);
+			} else {
+				throw new EmptyFieldException("no movies close to this name");
+			}
+		} catch (DbException | EmptyFieldException | InvalidNameException | InvalidDetailsException e) {
+			Logger.exception(e);
+		}
+
+	}
+}
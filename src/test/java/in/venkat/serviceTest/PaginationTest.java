@@ -0,0 +1,58 @@
+package in.venkat.serviceTest;
+
+import in.venkat.model.ShowPage;
+import in.venkat.service.ShowService;
+import in.venkat.util.Logger;
+
+public class PaginationTest {
+
+	public static void main(String[] args) {
+		/**
+		 * To page through all movies two at a time
+		 */
+		String category = "movie";
+		int pageSize = 2;
+		displayAllMoviesPageTest(category, pageSize);
+		/**
+		 * To page through trending movies
+		 */
+		trendingMoviesPageTest(pageSize);
+	}
+
+	/**
+	 * This method is used to display all movies page by page
+	 * 
+	 * @param category
+	 * @param pageSize
+	 */
+	public static void displayAllMoviesPageTest(String category, int pageSize) {
+		try {
+			String cursor = null;
+			do {
+				ShowPage page = ShowService.displayAllMoviesPage(category, pageSize, cursor);
+				Logger.log(page.getShows());
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+		} catch (Exception e) {
+			Logger.exception(e);
+		}
+	}
+
+	/**
+	 * This method is used to display trending movies page by page
+	 * 
+	 * @param pageSize
+	 */
+	public static void trendingMoviesPageTest(int pageSize) {
+		try {
+			String cursor = null;
+			do {
+				ShowPage page = ShowService.getTrendingMoviesPage(pageSize, cursor);
+				Logger.log(page.getShows());
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+		} catch (Exception e) {
+			Logger.exception(e);
+		}
+	}
+}
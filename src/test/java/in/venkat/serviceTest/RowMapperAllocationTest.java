@@ -0,0 +1,51 @@
+package in.venkat.serviceTest;
+
+import java.lang.management.ManagementFactory;
+
+import in.venkat.dao.PrimeTopupDao;
+import in.venkat.dao.ShowListDao;
+import in.venkat.util.Logger;
+
+public class RowMapperAllocationTest {
+
+	private static final int ROUNDS = 200;
+
+	public static void main(String[] args) {
+		/**
+		 * Measures the bytes allocated per full-table read, run once before the
+		 * row mapper change and once after to compare
+		 */
+		try {
+			measure("getShowDetails", () -> ShowListDao.getShowDetails().size());
+			measure("getDownloads", () -> ShowListDao.getDownloads().size());
+			measure("getTopupDetails", () -> PrimeTopupDao.getTopupDetails().size());
+		} catch (Exception e) {
+			Logger.exception(e);
+		}
+	}
+
+	private static void measure(String name, Read read) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		/**
+		 * Warm up so that class loading and the statement cache are not counted
+		 */
+		for (int i = 0; i < 20; i++) {
+			read.run();
+		}
+		int rows = read.run();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < ROUNDS; i++) {
+			read.run();
+		}
+		long perRead = (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+		Logger.log(name + ": " + perRead + " bytes per read, " + (rows == 0 ? 0 : perRead / rows) + " bytes per row ("
+				+ rows + " rows)");
+	}
+
+	@FunctionalInterface
+	private interface Read {
+		int run() throws Exception;
+	}
+}